@@ -2,8 +2,10 @@ package com.jaee;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class JaeeApplication {
     public static void main(String[] args) {
         SpringApplication.run(JaeeApplication.class, args);
@@ -0,0 +1,124 @@
+package com.jaee.catalog;
+
+import com.jaee.entity.Category;
+import com.jaee.entity.ProductChange;
+import com.jaee.event.CatalogSyncEvent;
+import com.jaee.repository.CategoryRepository;
+import com.jaee.service.ProductChangeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps this instance's catalog caches current with writes made by other instances. The
+ * snapshot, category registry, suggest tries and query/page caches are per instance and
+ * are otherwise only updated from local events; this polls the product change log and
+ * publishes a {@link CatalogSyncEvent} for the entries other instances wrote. Categories
+ * without products never appear in the log, so the category table is also compared with
+ * what it held last time, less often.
+ * <p>
+ * Polling starts from the end of the log before the caches load, so a change committed
+ * while they load may be seen twice but is never missed. Not started with
+ * {@code app.single-node}, where every write is local.
+ */
+@Component
+@Slf4j
+public class CatalogChangeFeed {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ProductChangeService productChangeService;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final boolean singleNode;
+
+    private ProductChangeService.Position position;
+    private List<List<Object>> categories;
+
+    public CatalogChangeFeed(
+            ProductChangeService productChangeService,
+            CategoryRepository categoryRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${app.catalog.change-feed.enabled:true}") boolean enabled,
+            @Value("${app.single-node:false}") boolean singleNode
+    ) {
+        this.productChangeService = productChangeService;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.singleNode = singleNode;
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || singleNode) {
+            log.info("Catalog change feed off - catalog caches only see writes made by this instance");
+            return;
+        }
+        position = productChangeService.head();
+        categories = readCategories();
+        log.info("Catalog change feed started at {}", position.encode());
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.change-feed.poll-interval-ms:1000}")
+    public synchronized void poll() {
+        if (position == null) {
+            return;
+        }
+        String origin = productChangeService.origin();
+        ProductChangeService.Batch batch;
+        do {
+            batch = productChangeService.read(position, BATCH_SIZE);
+            Set<Long> productIds = new LinkedHashSet<>();
+            for (ProductChange change : batch.rows()) {
+                if (!origin.equals(change.getOrigin())) {
+                    productIds.add(change.getProductId());
+                }
+            }
+            if (!productIds.isEmpty()) {
+                log.debug("Catalog change feed: {} products changed elsewhere", productIds.size());
+                eventPublisher.publishEvent(new CatalogSyncEvent(productIds, false, batch.next()));
+            }
+            // Only moved on once every listener has taken the batch; a failed batch is retried
+            position = batch.next();
+        } while (batch.hasMore());
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.change-feed.category-check-interval-ms:30000}")
+    public synchronized void checkCategories() {
+        if (position == null) {
+            return;
+        }
+        List<List<Object>> latest = readCategories();
+        if (!latest.equals(categories)) {
+            log.debug("Catalog change feed: categories changed");
+            eventPublisher.publishEvent(new CatalogSyncEvent(Set.of(), true, position));
+            categories = latest;
+        }
+    }
+
+    private List<List<Object>> readCategories() {
+        return categoryRepository.findAll(Sort.by("id")).stream()
+                .map(CatalogChangeFeed::fields)
+                .toList();
+    }
+
+    private static List<Object> fields(Category category) {
+        return Arrays.asList(category.getId(), category.getName(), category.getSlug(),
+                category.getDescription(), category.getImageUrl());
+    }
+}
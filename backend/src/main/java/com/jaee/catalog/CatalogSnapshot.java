@@ -0,0 +1,751 @@
+package com.jaee.catalog;
+
+import com.jaee.dto.common.PageResponse;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.dto.product.ProductFacetsDto;
+import com.jaee.util.PageCursor;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable, versioned in-memory view of all active products.
+ *
+ * Products live in slots. Price, category id, creation time and stock are held in
+ * parallel (columnar) arrays indexed by slot, and {@code byPrice}, {@code byName} and
+ * {@code byNewest} list the live slots pre-sorted ascending, ties broken by id;
+ * {@code onSaleByNewest} is the materialized on-sale collection in the same order.
+ * Bitset posting lists (live, in stock, per category, per price bucket) back the
+ * facet counts.
+ * A published snapshot is never mutated: {@link #apply} copies the arrays, patches
+ * the changed slots and returns the next version.
+ */
+public final class CatalogSnapshot {
+
+    static final long NO_CATEGORY = 0L;
+
+    /**
+     * Lower bounds (in minor units) of the facet price buckets after the first one.
+     */
+    static final long[] PRICE_BUCKET_EDGES = {50_000, 100_000, 150_000, 200_000, 300_000};
+
+    public static final int PRICE_BUCKETS = PRICE_BUCKET_EDGES.length + 1;
+
+    private final long version;
+    private final ProductDto[] products;
+    private final long[] prices;
+    private final long[] categoryIds;
+    private final long[] createdAt;
+    private final int[] stock;
+    private final int[] byPrice;
+    private final int[] byName;
+    private final int[] byNewest;
+    private final int[] onSaleByNewest;
+    private final Map<Long, Integer> slotsById;
+    private final Map<String, Integer> slotsBySlug;
+    private final BitSet live;
+    private final BitSet inStock;
+    private final Map<Long, BitSet> slotsByCategory;
+    private final BitSet[] slotsByPriceBucket;
+
+    private CatalogSnapshot(long version, Columns columns, int[] byPrice, int[] byName, int[] byNewest,
+                            int[] onSaleByNewest, Map<Long, Integer> slotsById, Map<String, Integer> slotsBySlug, Postings postings) {
+        this.version = version;
+        this.products = columns.products;
+        this.prices = columns.prices;
+        this.categoryIds = columns.categoryIds;
+        this.createdAt = columns.createdAt;
+        this.stock = columns.stock;
+        this.byPrice = byPrice;
+        this.byName = byName;
+        this.byNewest = byNewest;
+        this.onSaleByNewest = onSaleByNewest;
+        this.slotsById = slotsById;
+        this.slotsBySlug = slotsBySlug;
+        this.live = postings.live;
+        this.inStock = postings.inStock;
+        this.slotsByCategory = postings.byCategory;
+        this.slotsByPriceBucket = postings.byPriceBucket;
+    }
+
+    public static CatalogSnapshot empty() {
+        return of(0, List.of());
+    }
+
+    /**
+     * Builds a snapshot from scratch. Inactive products are skipped.
+     */
+    public static CatalogSnapshot of(long version, Collection<ProductDto> products) {
+        List<ProductDto> active = products.stream()
+                .filter(p -> Boolean.TRUE.equals(p.getActive()))
+                .toList();
+        Columns columns = new Columns(active.size());
+        Map<Long, Integer> slotsById = new HashMap<>();
+        Map<String, Integer> slotsBySlug = new HashMap<>();
+        Postings postings = new Postings();
+        for (int slot = 0; slot < active.size(); slot++) {
+            columns.write(slot, active.get(slot));
+            postings.add(slot, columns);
+            slotsById.put(active.get(slot).getId(), slot);
+            slotsBySlug.put(active.get(slot).getSlug(), slot);
+        }
+        return new CatalogSnapshot(version, columns,
+                columns.sorted(active.size(), columns::comparePrice),
+                columns.sorted(active.size(), columns::compareName),
+                columns.sorted(active.size(), columns::compareNewest),
+                columns.sorted(IntStream.range(0, active.size()).filter(slot -> isOnSale(columns.products[slot])),
+                        columns::compareNewest),
+                slotsById, slotsBySlug, postings);
+    }
+
+    /**
+     * Returns the next version with the given products upserted and removed.
+     * An upsert of an inactive product removes it.
+     */
+    public CatalogSnapshot apply(long newVersion, Collection<ProductDto> upserts, Collection<Long> removals) {
+        long added = upserts.stream()
+                .filter(p -> Boolean.TRUE.equals(p.getActive()) && !slotsById.containsKey(p.getId()))
+                .count();
+        int capacity = products.length + (int) added;
+        Columns columns = new Columns(this, capacity);
+        SlotList price = new SlotList(byPrice, capacity, columns::comparePrice);
+        SlotList name = new SlotList(byName, capacity, columns::compareName);
+        SlotList newest = new SlotList(byNewest, capacity, columns::compareNewest);
+        SlotList onSale = new SlotList(onSaleByNewest, capacity, columns::compareNewest);
+        Map<Long, Integer> ids = new HashMap<>(slotsById);
+        Map<String, Integer> slugs = new HashMap<>(slotsBySlug);
+        Postings postings = new Postings(this);
+        int nextSlot = products.length;
+
+        List<Long> removed = new ArrayList<>(removals);
+        for (ProductDto product : upserts) {
+            if (!Boolean.TRUE.equals(product.getActive())) {
+                removed.add(product.getId());
+            }
+        }
+        for (Long id : removed) {
+            Integer slot = ids.remove(id);
+            if (slot != null) {
+                price.remove(slot);
+                name.remove(slot);
+                newest.remove(slot);
+                onSale.remove(slot);
+                postings.remove(slot, columns);
+                slugs.remove(columns.products[slot].getSlug());
+                columns.products[slot] = null;
+            }
+        }
+
+        for (ProductDto product : upserts) {
+            if (!Boolean.TRUE.equals(product.getActive())) {
+                continue;
+            }
+            Integer slot = ids.get(product.getId());
+            if (slot != null) {
+                price.remove(slot);
+                name.remove(slot);
+                newest.remove(slot);
+                onSale.remove(slot);
+                postings.remove(slot, columns);
+                slugs.remove(columns.products[slot].getSlug());
+            } else {
+                slot = nextSlot++;
+                ids.put(product.getId(), slot);
+            }
+            columns.write(slot, product);
+            postings.add(slot, columns);
+            slugs.put(product.getSlug(), slot);
+            price.insert(slot);
+            name.insert(slot);
+            newest.insert(slot);
+            if (isOnSale(product)) {
+                onSale.insert(slot);
+            }
+        }
+
+        int live = ids.size();
+        if (capacity - live > Math.max(16, live / 4)) {
+            // Too many holes left by removals - compact into a fresh layout
+            return of(newVersion, Arrays.stream(columns.products).filter(Objects::nonNull).toList());
+        }
+        return new CatalogSnapshot(newVersion, columns, price.toArray(), name.toArray(), newest.toArray(), onSale.toArray(),
+                ids, slugs, postings);
+    }
+
+    /**
+     * Returns the next version with the given stock levels (product id to quantity).
+     */
+    public CatalogSnapshot applyStockLevels(long newVersion, Map<Long, Integer> levels) {
+        List<ProductDto> upserts = new ArrayList<>();
+        levels.forEach((id, level) -> findById(id).ifPresent(product -> {
+            int qty = Math.max(0, level);
+            upserts.add(product.toBuilder().stockQty(qty).inStock(qty > 0).build());
+        }));
+        return apply(newVersion, upserts, List.of());
+    }
+
+    /**
+     * Returns the next version with the category name rewritten on every product in it.
+     */
+    public CatalogSnapshot renameCategory(long newVersion, Long categoryId, String categoryName) {
+        List<ProductDto> upserts = new ArrayList<>();
+        for (ProductDto product : products) {
+            if (product != null && categoryId.equals(product.getCategoryId())) {
+                upserts.add(product.toBuilder().categoryName(categoryName).build());
+            }
+        }
+        return apply(newVersion, upserts, List.of());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    public Optional<ProductDto> findById(Long id) {
+        Integer slot = slotsById.get(id);
+        return slot != null ? Optional.of(copy(products[slot])) : Optional.empty();
+    }
+
+    public Optional<ProductDto> findBySlug(String slug) {
+        Integer slot = slotsBySlug.get(slug);
+        return slot != null ? Optional.of(copy(products[slot])) : Optional.empty();
+    }
+
+    /**
+     * Answers a filtered, sorted page the same way {@code ProductRepository.findIdsWithFilters} would.
+     */
+    public PageResponse<ProductDto> query(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                          String sortBy, String sortDir, int page, int size) {
+        return query(categoryId, minPrice, maxPrice, order(sortBy), sortDir, page, size);
+    }
+
+    /**
+     * Same as {@link #query(Long, BigDecimal, BigDecimal, String, String, int, int)}, ordered
+     * by a ranking built from this snapshot.
+     */
+    public PageResponse<ProductDto> query(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                          Ranking ranking, String sortDir, int page, int size) {
+        if (ranking.version != version) {
+            throw new IllegalArgumentException("Ranking was built for snapshot v" + ranking.version);
+        }
+        return query(categoryId, minPrice, maxPrice, ranking.order, sortDir, page, size);
+    }
+
+    /**
+     * Orders the live products ascending by an externally supplied score, ties broken by
+     * id. For orderings that change independently of the catalog, such as popularity;
+     * callers cache the result until the scores or the snapshot change.
+     */
+    public Ranking rank(ToLongFunction<ProductDto> score) {
+        long[] scores = new long[products.length];
+        for (int slot : byNewest) {
+            scores[slot] = score.applyAsLong(products[slot]);
+        }
+        int[] order = IntStream.of(byNewest).boxed()
+                .sorted((a, b) -> {
+                    int result = Long.compare(scores[a], scores[b]);
+                    return result != 0 ? result : Long.compare(products[a].getId(), products[b].getId());
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return new Ranking(version, order);
+    }
+
+    private PageResponse<ProductDto> query(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                           int[] order, String sortDir, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Page index must not be negative and page size must be positive");
+        }
+        boolean descending = Sort.Direction.fromString(sortDir).isDescending();
+        Filter filter = new Filter(categoryId, minPrice, maxPrice);
+
+        long skip = (long) page * size;
+        long total = 0;
+        List<ProductDto> content = new ArrayList<>(size);
+        for (int i = 0; i < order.length; i++) {
+            int slot = order[descending ? order.length - 1 - i : i];
+            if (!filter.matches(slot)) {
+                continue;
+            }
+            if (total >= skip && content.size() < size) {
+                content.add(copy(products[slot]));
+            }
+            total++;
+        }
+        return PageResponse.of(content, page, size, total);
+    }
+
+    /**
+     * Keyset page: up to {@code limit} products matching the filters that sort strictly
+     * after the cursor. The cursor is positioned by binary search in the presorted order,
+     * so the cost does not grow with how deep the client has scrolled.
+     */
+    public List<ProductDto> scroll(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                   String sortField, boolean descending, PageCursor after, int limit) {
+        int[] order = order(sortField);
+        Filter filter = new Filter(categoryId, minPrice, maxPrice);
+        List<ProductDto> content = new ArrayList<>(limit);
+        if (descending) {
+            int start = after != null ? firstIndex(order, after, false) - 1 : order.length - 1;
+            for (int i = start; i >= 0 && content.size() < limit; i--) {
+                if (filter.matches(order[i])) {
+                    content.add(copy(products[order[i]]));
+                }
+            }
+        } else {
+            int start = after != null ? firstIndex(order, after, true) : 0;
+            for (int i = start; i < order.length && content.size() < limit; i++) {
+                if (filter.matches(order[i])) {
+                    content.add(copy(products[order[i]]));
+                }
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Facet counts for the given filters, computed by intersecting posting lists.
+     * Each facet ignores its own filter (category counts apply the price filter but not
+     * the category one, and vice versa) so the UI can show the alternatives;
+     * {@code total} and {@code inStock} apply every filter.
+     *
+     * @param searchIds ids matching the search text, or null when there is no search
+     */
+    public ProductFacetsDto facets(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, Collection<Long> searchIds) {
+        BitSet base = (BitSet) live.clone();
+        if (searchIds != null) {
+            BitSet matches = new BitSet(products.length);
+            for (Long id : searchIds) {
+                Integer slot = slotsById.get(id);
+                if (slot != null) {
+                    matches.set(slot);
+                }
+            }
+            base.and(matches);
+        }
+        BitSet inCategory = categoryId != null ? slotsByCategory.getOrDefault(categoryId, new BitSet()) : null;
+        BitSet inPriceRange = minPrice != null || maxPrice != null ? priceRange(minPrice, maxPrice) : null;
+
+        List<ProductFacetsDto.CategoryFacet> categories = new ArrayList<>();
+        slotsByCategory.forEach((id, slots) -> {
+            if (id != NO_CATEGORY) {
+                categories.add(ProductFacetsDto.CategoryFacet.builder()
+                        .categoryId(id)
+                        .categoryName(products[slots.nextSetBit(0)].getCategoryName())
+                        .count(count(base, slots, inPriceRange))
+                        .build());
+            }
+        });
+        categories.sort(Comparator.comparing(ProductFacetsDto.CategoryFacet::getCategoryName, String.CASE_INSENSITIVE_ORDER));
+
+        long[] bucketCounts = new long[PRICE_BUCKETS];
+        for (int bucket = 0; bucket < PRICE_BUCKETS; bucket++) {
+            bucketCounts[bucket] = count(base, slotsByPriceBucket[bucket], inCategory);
+        }
+
+        return ProductFacetsDto.builder()
+                .total(count(base, inCategory, inPriceRange))
+                .inStock(count(base, inStock, inCategory, inPriceRange))
+                .categories(categories)
+                .priceBuckets(priceBuckets(bucketCounts))
+                .build();
+    }
+
+    /**
+     * The facet price buckets, in order, with the given count for each.
+     */
+    public static List<ProductFacetsDto.PriceBucket> priceBuckets(long[] counts) {
+        List<ProductFacetsDto.PriceBucket> buckets = new ArrayList<>(PRICE_BUCKETS);
+        for (int bucket = 0; bucket < PRICE_BUCKETS; bucket++) {
+            buckets.add(ProductFacetsDto.PriceBucket.builder()
+                    .min(bucket > 0 ? BigDecimal.valueOf(PRICE_BUCKET_EDGES[bucket - 1], 2) : BigDecimal.ZERO.setScale(2))
+                    .max(bucket < PRICE_BUCKET_EDGES.length ? BigDecimal.valueOf(PRICE_BUCKET_EDGES[bucket], 2) : null)
+                    .count(counts[bucket])
+                    .build());
+        }
+        return buckets;
+    }
+
+    public List<ProductDto> newest(int limit) {
+        List<ProductDto> result = new ArrayList<>(Math.min(limit, byNewest.length));
+        for (int i = byNewest.length - 1; i >= 0 && result.size() < limit; i--) {
+            result.add(copy(products[byNewest[i]]));
+        }
+        return result;
+    }
+
+    public PageResponse<ProductDto> onSale(int page, int size) {
+        long skip = (long) page * size;
+        List<ProductDto> content = new ArrayList<>(size);
+        for (long i = onSaleByNewest.length - 1 - skip; i >= 0 && content.size() < size; i--) {
+            content.add(copy(products[onSaleByNewest[(int) i]]));
+        }
+        return PageResponse.of(content, page, size, onSaleByNewest.length);
+    }
+
+    /**
+     * Keyset page of a product collection, newest first: up to {@code limit} members
+     * after the cursor. Collections are read straight off the presorted slot lists.
+     */
+    public List<ProductDto> collection(ProductCollection collection, PageCursor after, int limit, int newArrivalsSize) {
+        int[] order = collection == ProductCollection.ON_SALE ? onSaleByNewest : byNewest;
+        int end = collection == ProductCollection.NEW_ARRIVALS ? Math.max(0, order.length - newArrivalsSize) : 0;
+        int start = after != null ? firstIndex(order, after, false) - 1 : order.length - 1;
+        List<ProductDto> content = new ArrayList<>(limit);
+        for (int i = start; i >= end && content.size() < limit; i--) {
+            content.add(copy(products[order[i]]));
+        }
+        return content;
+    }
+
+    /**
+     * Products handed out are copies: ProductDto is mutable, and a caller changing one must
+     * not change the published snapshot.
+     */
+    private static ProductDto copy(ProductDto product) {
+        return product.toBuilder()
+                .images(product.getImages() != null ? new ArrayList<>(product.getImages()) : null)
+                .build();
+    }
+
+    static boolean isOnSale(ProductDto product) {
+        return product.getCompareAtPrice() != null && product.getCompareAtPrice().compareTo(product.getPrice()) > 0;
+    }
+
+    static int priceBucket(long price) {
+        int bucket = 0;
+        while (bucket < PRICE_BUCKET_EDGES.length && price >= PRICE_BUCKET_EDGES[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    static long toMinorUnits(BigDecimal amount, RoundingMode rounding) {
+        return amount.movePointRight(2).setScale(0, rounding).longValueExact();
+    }
+
+    /**
+     * First index in {@code order} whose slot sorts after the cursor (or at-or-after it
+     * when {@code strictlyAfter} is false).
+     */
+    private int firstIndex(int[] order, PageCursor cursor, boolean strictlyAfter) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareToCursor(order[mid], cursor);
+            if (strictlyAfter ? cmp > 0 : cmp >= 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int compareToCursor(int slot, PageCursor cursor) {
+        int result = switch (cursor.getSortField()) {
+            case "price" -> Long.compare(prices[slot], toMinorUnits(cursor.decimalValue(), RoundingMode.HALF_UP));
+            case "name" -> products[slot].getName().compareTo(cursor.getValue());
+            default -> Long.compare(createdAt[slot], toEpochMillis(cursor.dateTimeValue()));
+        };
+        return result != 0 ? result : Long.compare(products[slot].getId(), cursor.getId());
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE;
+    }
+
+    /**
+     * Slots priced within [min, max], read off the presorted price order.
+     */
+    private BitSet priceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        long min = minPrice != null ? toMinorUnits(minPrice, RoundingMode.CEILING) : Long.MIN_VALUE;
+        long max = maxPrice != null ? toMinorUnits(maxPrice, RoundingMode.FLOOR) : Long.MAX_VALUE;
+        BitSet slots = new BitSet(products.length);
+        for (int i = firstPriceIndex(min); i < byPrice.length && prices[byPrice[i]] <= max; i++) {
+            slots.set(byPrice[i]);
+        }
+        return slots;
+    }
+
+    private int firstPriceIndex(long min) {
+        int low = 0;
+        int high = byPrice.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[byPrice[mid]] >= min) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Cardinality of the intersection of {@code base} with every non-null set.
+     */
+    private static long count(BitSet base, BitSet... sets) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet set : sets) {
+            if (set != null) {
+                result.and(set);
+            }
+        }
+        return result.cardinality();
+    }
+
+    private int[] order(String sortBy) {
+        if (sortBy == null) {
+            return byNewest;
+        }
+        return switch (sortBy) {
+            case "price" -> byPrice;
+            case "name" -> byName;
+            default -> byNewest;
+        };
+    }
+
+    /**
+     * Columnar product storage indexed by slot.
+     */
+    private static final class Columns {
+        final ProductDto[] products;
+        final long[] prices;
+        final long[] categoryIds;
+        final long[] createdAt;
+        final int[] stock;
+
+        Columns(int capacity) {
+            products = new ProductDto[capacity];
+            prices = new long[capacity];
+            categoryIds = new long[capacity];
+            createdAt = new long[capacity];
+            stock = new int[capacity];
+        }
+
+        Columns(CatalogSnapshot source, int capacity) {
+            products = Arrays.copyOf(source.products, capacity);
+            prices = Arrays.copyOf(source.prices, capacity);
+            categoryIds = Arrays.copyOf(source.categoryIds, capacity);
+            createdAt = Arrays.copyOf(source.createdAt, capacity);
+            stock = Arrays.copyOf(source.stock, capacity);
+        }
+
+        void write(int slot, ProductDto product) {
+            products[slot] = product;
+            prices[slot] = toMinorUnits(product.getPrice(), RoundingMode.HALF_UP);
+            categoryIds[slot] = product.getCategoryId() != null ? product.getCategoryId() : NO_CATEGORY;
+            createdAt[slot] = toEpochMillis(product.getCreatedAt());
+            stock[slot] = product.getStockQty() != null ? product.getStockQty() : 0;
+        }
+
+        int comparePrice(int a, int b) {
+            int result = Long.compare(prices[a], prices[b]);
+            return result != 0 ? result : compareId(a, b);
+        }
+
+        int compareName(int a, int b) {
+            // Code point order, as the name columns are collated "C" (V24)
+            int result = products[a].getName().compareTo(products[b].getName());
+            return result != 0 ? result : compareId(a, b);
+        }
+
+        int compareNewest(int a, int b) {
+            int result = Long.compare(createdAt[a], createdAt[b]);
+            return result != 0 ? result : compareId(a, b);
+        }
+
+        int compareId(int a, int b) {
+            return Long.compare(products[a].getId(), products[b].getId());
+        }
+
+        int[] sorted(int count, SlotOrder order) {
+            return sorted(IntStream.range(0, count), order);
+        }
+
+        int[] sorted(IntStream slots, SlotOrder order) {
+            return slots.boxed()
+                    .sorted(order::compare)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Category and price filter evaluated against the columnar arrays.
+     */
+    private final class Filter {
+        private final long category;
+        private final long min;
+        private final long max;
+
+        Filter(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice) {
+            this.category = categoryId != null ? categoryId : -1;
+            this.min = minPrice != null ? toMinorUnits(minPrice, RoundingMode.CEILING) : Long.MIN_VALUE;
+            this.max = maxPrice != null ? toMinorUnits(maxPrice, RoundingMode.FLOOR) : Long.MAX_VALUE;
+        }
+
+        boolean matches(int slot) {
+            return (category == -1 || categoryIds[slot] == category) && prices[slot] >= min && prices[slot] <= max;
+        }
+    }
+
+    /**
+     * Posting lists being built for the next version. Sets inherited from the previous
+     * version are cloned the first time they are touched, so untouched categories and
+     * buckets stay shared between versions.
+     */
+    private static final class Postings {
+        final BitSet live;
+        final BitSet inStock;
+        final Map<Long, BitSet> byCategory;
+        final BitSet[] byPriceBucket;
+        private final Set<Long> ownedCategories = new HashSet<>();
+        private final boolean[] ownedBuckets;
+
+        Postings() {
+            live = new BitSet();
+            inStock = new BitSet();
+            byCategory = new HashMap<>();
+            byPriceBucket = new BitSet[PRICE_BUCKET_EDGES.length + 1];
+            ownedBuckets = new boolean[byPriceBucket.length];
+            for (int bucket = 0; bucket < byPriceBucket.length; bucket++) {
+                byPriceBucket[bucket] = new BitSet();
+                ownedBuckets[bucket] = true;
+            }
+        }
+
+        Postings(CatalogSnapshot source) {
+            live = (BitSet) source.live.clone();
+            inStock = (BitSet) source.inStock.clone();
+            byCategory = new HashMap<>(source.slotsByCategory);
+            byPriceBucket = source.slotsByPriceBucket.clone();
+            ownedBuckets = new boolean[byPriceBucket.length];
+        }
+
+        void add(int slot, Columns columns) {
+            live.set(slot);
+            inStock.set(slot, columns.stock[slot] > 0);
+            category(columns.categoryIds[slot]).set(slot);
+            bucket(priceBucket(columns.prices[slot])).set(slot);
+        }
+
+        void remove(int slot, Columns columns) {
+            live.clear(slot);
+            inStock.clear(slot);
+            BitSet category = category(columns.categoryIds[slot]);
+            category.clear(slot);
+            if (category.isEmpty()) {
+                byCategory.remove(columns.categoryIds[slot]);
+            }
+            bucket(priceBucket(columns.prices[slot])).clear(slot);
+        }
+
+        private BitSet category(long categoryId) {
+            BitSet slots = byCategory.get(categoryId);
+            if (slots == null) {
+                slots = new BitSet();
+                byCategory.put(categoryId, slots);
+                ownedCategories.add(categoryId);
+            } else if (ownedCategories.add(categoryId)) {
+                slots = (BitSet) slots.clone();
+                byCategory.put(categoryId, slots);
+            }
+            return slots;
+        }
+
+        private BitSet bucket(int bucket) {
+            if (!ownedBuckets[bucket]) {
+                byPriceBucket[bucket] = (BitSet) byPriceBucket[bucket].clone();
+                ownedBuckets[bucket] = true;
+            }
+            return byPriceBucket[bucket];
+        }
+    }
+
+    /**
+     * A slot order computed by {@link #rank} for one snapshot version.
+     */
+    public static final class Ranking {
+        private final long version;
+        private final int[] order;
+
+        private Ranking(long version, int[] order) {
+            this.version = version;
+            this.order = order;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    @FunctionalInterface
+    interface SlotOrder {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Growable sorted list of slots used while building the next version.
+     */
+    private static final class SlotList {
+        private final int[] slots;
+        private final SlotOrder order;
+        private int size;
+
+        SlotList(int[] source, int capacity, SlotOrder order) {
+            this.slots = Arrays.copyOf(source, Math.max(capacity, source.length));
+            this.size = source.length;
+            this.order = order;
+        }
+
+        void insert(int slot) {
+            int index = search(slot);
+            int position = index >= 0 ? index : -(index + 1);
+            System.arraycopy(slots, position, slots, position + 1, size - position);
+            slots[position] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            int index = search(slot);
+            if (index >= 0) {
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+            }
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(slots, size);
+        }
+
+        private int search(int slot) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = order.compare(slots[mid], slot);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
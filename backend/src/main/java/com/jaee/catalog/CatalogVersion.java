@@ -0,0 +1,137 @@
+package com.jaee.catalog;
+
+import com.jaee.event.CatalogSyncEvent;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.event.StockChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Version stamp for everything served by the public catalog endpoints. It moves on
+ * every committed product, category or stock change, including those made by other
+ * instances ({@link CatalogSyncEvent}); ETags and Last-Modified are
+ * derived from it so revalidations are answered from memory with a 304.
+ * <p>
+ * The stamp is bumped after the catalog snapshot has been swapped, and handlers read it
+ * before loading data, so a response is never tagged newer than its body.
+ */
+@Component
+@Slf4j
+public class CatalogVersion {
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final CacheControl cacheControl;
+
+    private volatile Stamp current;
+
+    public CatalogVersion(
+            @Value("${app.catalog.http-cache.max-age:0s}") Duration maxAge,
+            @Value("${app.catalog.http-cache.stale-while-revalidate:60s}") Duration staleWhileRevalidate
+    ) {
+        this.cacheControl = CacheControl.maxAge(maxAge)
+                .cachePublic()
+                .staleWhileRevalidate(staleWhileRevalidate);
+        this.current = stamp(0, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    public Stamp current() {
+        return current;
+    }
+
+    /**
+     * Answers a catalog GET: 304 when the client's If-None-Match / If-Modified-Since
+     * still matches the current stamp (the body supplier is never called), otherwise
+     * 200 with the body and validators.
+     */
+    public <T> ResponseEntity<T> respond(WebRequest request, Supplier<T> body) {
+        return respond(request, null, ok -> ok.body(body.get()));
+    }
+
+    /**
+     * Same as {@link #respond(WebRequest, Supplier)} for handlers that serve several
+     * encodings of one resource (e.g. gzip and identity). Each variant gets its own
+     * strong ETag, responses vary by Accept-Encoding, and the handler completes the
+     * 200 response itself.
+     */
+    public <T> ResponseEntity<T> respond(
+            WebRequest request,
+            String variant,
+            Function<ResponseEntity.BodyBuilder, ResponseEntity<T>> body
+    ) {
+        Stamp stamp = current;
+        String etag = stamp.etag(variant);
+        long lastModified = stamp.lastModified().toEpochMilli();
+        if (request.checkNotModified(etag, lastModified)) {
+            return headers(ResponseEntity.status(HttpStatus.NOT_MODIFIED), etag, lastModified, variant).build();
+        }
+        return body.apply(headers(ResponseEntity.ok(), etag, lastModified, variant));
+    }
+
+    private ResponseEntity.BodyBuilder headers(ResponseEntity.BodyBuilder builder, String etag, long lastModified, String variant) {
+        builder.eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(cacheControl);
+        if (variant != null) {
+            builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        }
+        return builder;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        bump();
+    }
+
+    @EventListener
+    public void onCatalogSync(CatalogSyncEvent event) {
+        bump();
+    }
+
+    private synchronized void bump() {
+        Stamp previous = current;
+        // Last-Modified has one-second resolution; keep it strictly increasing so two
+        // writes within the same second still invalidate If-Modified-Since
+        Instant now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        Instant lastModified = now.isAfter(previous.lastModified()) ? now : previous.lastModified().plusSeconds(1);
+        current = stamp(previous.version() + 1, lastModified);
+        log.debug("Catalog version bumped to {}", current.version());
+    }
+
+    private Stamp stamp(long version, Instant lastModified) {
+        // The boot id keeps tags from a previous run (version restarts at 0) from matching
+        return new Stamp(version, bootId + "-" + version, lastModified);
+    }
+
+    public record Stamp(long version, String tag, Instant lastModified) {
+
+        public String etag(String variant) {
+            return "\"" + (variant != null ? tag + "-" + variant : tag) + "\"";
+        }
+    }
+}
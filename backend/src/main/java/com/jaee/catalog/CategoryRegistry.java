@@ -0,0 +1,150 @@
+package com.jaee.catalog;
+
+import com.jaee.dto.category.CategoryDto;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.event.CatalogSyncEvent;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Every category with its active-product count, held in memory. Loaded with two queries
+ * at startup and then kept current from category and product events without touching
+ * the database; readers dereference an immutable {@link Categories} and never lock.
+ * Writes made by other instances only arrive as ids, so those reload the whole registry.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryRegistry {
+
+    private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+
+    private volatile Categories current;
+
+    /**
+     * The current categories, or empty until the registry has loaded (callers then fall
+     * back to the database).
+     */
+    public Optional<Categories> current() {
+        return Optional.ofNullable(current);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (ProductRepository.CategoryCount row : productRepository.countActiveByCategory()) {
+            counts.put(row.getCategoryId(), row.getProducts());
+        }
+        List<CategoryDto> categories = categoryRepository.findAll(Sort.by("id")).stream()
+                .map(category -> CategoryDto.fromEntity(category, counts.getOrDefault(category.getId(), 0L)))
+                .toList();
+        current = new Categories(categories);
+        log.info("Category registry loaded with {} categories", categories.size());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        if (current == null) {
+            return;
+        }
+        Long categoryId = event.getCategoryId();
+        int count = current.productCount(categoryId);
+        List<CategoryDto> categories = new ArrayList<>(current.all());
+        categories.removeIf(category -> category.getId().equals(categoryId));
+        if (event.getAfter() != null) {
+            categories.add(event.getAfter().toBuilder().productCount(count).build());
+            categories.sort(Comparator.comparing(CategoryDto::getId));
+        }
+        current = new Categories(categories);
+    }
+
+    @EventListener
+    public synchronized void onCatalogSync(CatalogSyncEvent event) {
+        if (current != null) {
+            load();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (current == null) {
+            return;
+        }
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            countActive(change.getBefore(), -1, deltas);
+            countActive(change.getAfter(), 1, deltas);
+        }
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        current = new Categories(current.all().stream()
+                .map(category -> {
+                    Integer delta = deltas.get(category.getId());
+                    return delta == null ? category
+                            : category.toBuilder().productCount(Math.max(0, category.getProductCount() + delta)).build();
+                })
+                .toList());
+    }
+
+    private static void countActive(ProductDto product, int sign, Map<Long, Integer> deltas) {
+        if (product != null && product.getCategoryId() != null && Boolean.TRUE.equals(product.getActive())) {
+            deltas.merge(product.getCategoryId(), sign, Integer::sum);
+        }
+    }
+
+    /**
+     * Immutable view of the categories, in id order.
+     */
+    public static final class Categories {
+
+        private final List<CategoryDto> all;
+        private final Map<String, CategoryDto> bySlug = new HashMap<>();
+
+        private Categories(List<CategoryDto> all) {
+            this.all = List.copyOf(all);
+            for (CategoryDto category : this.all) {
+                bySlug.put(category.getSlug(), category);
+            }
+        }
+
+        public List<CategoryDto> all() {
+            return all;
+        }
+
+        public Optional<CategoryDto> findBySlug(String slug) {
+            return Optional.ofNullable(bySlug.get(slug));
+        }
+
+        public int productCount(Long categoryId) {
+            return all.stream()
+                    .filter(category -> category.getId().equals(categoryId))
+                    .findFirst()
+                    .map(CategoryDto::getProductCount)
+                    .orElse(0);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.jaee.catalog;
+
+import com.jaee.event.OrderPaidEvent;
+import com.jaee.util.LongIntHashMap;
+import com.jaee.util.LongObjectHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * "Frequently bought together": a sparse product x product matrix counting the paid
+ * orders that contained both products. Bootstrapped by streaming order history at
+ * startup and updated from {@link OrderPaidEvent}s.
+ *
+ * The matrix is only touched by writers (under this object's lock). For each product
+ * whose row changes, the top-K neighbours are recomputed and published, so a lookup
+ * is a single map read.
+ */
+@Component
+@Slf4j
+public class CoPurchaseIndex {
+
+    private static final long[] NONE = new long[0];
+
+    // Orders with more distinct products than this are sampled down to the first ones;
+    // they are rare and would otherwise add a quadratic number of pairs
+    private static final int MAX_PRODUCTS_PER_ORDER = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxNeighbours;
+
+    // Guarded by this
+    private final LongObjectHashMap<LongIntHashMap> matrix = new LongObjectHashMap<>();
+
+    private final Map<Long, long[]> neighbours = new ConcurrentHashMap<>();
+
+    public CoPurchaseIndex(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.catalog.related.max-neighbours:20}") int maxNeighbours,
+            @Value("${app.catalog.related.fetch-size:1000}") int fetchSize
+    ) {
+        if (maxNeighbours < 1) {
+            throw new IllegalArgumentException("app.catalog.related.max-neighbours must be at least 1, was " + maxNeighbours);
+        }
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.maxNeighbours = maxNeighbours;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        String statuses = ProductPopularity.SOLD.stream()
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(","));
+        String sql = "SELECT oi.order_id, oi.product_id FROM order_items oi "
+                + "JOIN orders o ON o.id = oi.order_id "
+                + "WHERE o.status IN (" + statuses + ") AND oi.product_id IS NOT NULL "
+                + "ORDER BY oi.order_id";
+
+        // Rows arrive grouped by order; each group is folded into the matrix as it ends
+        long[] basket = new long[MAX_PRODUCTS_PER_ORDER];
+        int[] basketSize = {0};
+        long[] currentOrder = {-1};
+        long[] orders = {0};
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(sql, rs -> {
+            long orderId = rs.getLong(1);
+            if (orderId != currentOrder[0]) {
+                orders[0] += record(basket, basketSize[0]) ? 1 : 0;
+                currentOrder[0] = orderId;
+                basketSize[0] = 0;
+            }
+            if (basketSize[0] < basket.length) {
+                basketSize[0] = addDistinct(basket, basketSize[0], rs.getLong(2));
+            }
+        }));
+        orders[0] += record(basket, basketSize[0]) ? 1 : 0;
+
+        neighbours.clear();
+        matrix.forEach((productId, row) -> publish(productId, row));
+        log.info("Co-purchase index loaded from {} orders ({} products with neighbours)", orders[0], neighbours.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderPaid(OrderPaidEvent event) {
+        long[] basket = new long[Math.min(event.getQuantities().size(), MAX_PRODUCTS_PER_ORDER)];
+        int size = 0;
+        for (Long productId : event.getQuantities().keySet()) {
+            if (size == basket.length) {
+                break;
+            }
+            size = addDistinct(basket, size, productId);
+        }
+        if (record(basket, size)) {
+            for (int i = 0; i < size; i++) {
+                publish(basket[i], matrix.get(basket[i]));
+            }
+        }
+    }
+
+    /**
+     * Ids of the products most often bought together with the given one, best first
+     * (ties broken by id). Empty when there is no purchase signal.
+     */
+    public long[] neighbours(long productId) {
+        return neighbours.getOrDefault(productId, NONE);
+    }
+
+    /**
+     * Adds one co-occurrence for every pair in the basket. Returns false for baskets
+     * with fewer than two products, which carry no signal.
+     */
+    private boolean record(long[] basket, int size) {
+        if (size < 2) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            LongIntHashMap row = matrix.computeIfAbsent(basket[i], id -> new LongIntHashMap());
+            for (int j = 0; j < size; j++) {
+                if (i != j) {
+                    row.addTo(basket[j], 1);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int addDistinct(long[] basket, int size, long productId) {
+        for (int i = 0; i < size; i++) {
+            if (basket[i] == productId) {
+                return size;
+            }
+        }
+        basket[size] = productId;
+        return size + 1;
+    }
+
+    /**
+     * Selects the row's top-K by count with a bounded min-heap and publishes it.
+     */
+    private void publish(long productId, LongIntHashMap row) {
+        int k = Math.min(maxNeighbours, row.size());
+        long[] heapIds = new long[k];
+        int[] heapCounts = new int[k];
+        int[] heapSize = {0};
+        row.forEach((id, count) -> {
+            if (heapSize[0] < k) {
+                heapIds[heapSize[0]] = id;
+                heapCounts[heapSize[0]] = count;
+                siftUp(heapIds, heapCounts, heapSize[0]++);
+            } else if (ranksAbove(count, id, heapCounts[0], heapIds[0])) {
+                heapIds[0] = id;
+                heapCounts[0] = count;
+                siftDown(heapIds, heapCounts, k);
+            }
+        });
+
+        // Drain the heap (worst first) into best-first order
+        long[] top = new long[k];
+        for (int n = k; n > 0; n--) {
+            top[n - 1] = heapIds[0];
+            heapIds[0] = heapIds[n - 1];
+            heapCounts[0] = heapCounts[n - 1];
+            siftDown(heapIds, heapCounts, n - 1);
+        }
+        neighbours.put(productId, top);
+    }
+
+    // Higher count wins; on equal counts the lower id wins so the order is stable
+    private static boolean ranksAbove(int count, long id, int otherCount, long otherId) {
+        return count != otherCount ? count > otherCount : id < otherId;
+    }
+
+    private static void siftUp(long[] ids, int[] counts, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksAbove(counts[parent], ids[parent], counts[index], ids[index])) {
+                return;
+            }
+            swap(ids, counts, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] ids, int[] counts, int size) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (ranksAbove(counts[worst], ids[worst], counts[child], ids[child])) {
+                    worst = child;
+                }
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(ids, counts, index, worst);
+            index = worst;
+        }
+    }
+
+    private static void swap(long[] ids, int[] counts, int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int count = counts[a];
+        counts[a] = counts[b];
+        counts[b] = count;
+    }
+}
@@ -0,0 +1,99 @@
+package com.jaee.catalog;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight loading: concurrent calls for the same loader and key share one in-flight
+ * load and its result (or exception), so database work scales with distinct keys rather
+ * than with request rate. Nothing is kept once the load finishes; this only collapses
+ * loads that overlap in time.
+ * <p>
+ * A caller that has waited longer than the timeout stops waiting and loads on its own, so
+ * a stuck load cannot hold up everyone behind it. Metrics are tagged by loader name
+ * ({@code coalescer.loads} by outcome, {@code coalescer.load.duration} for the loads run).
+ * Results are shared between threads and must not be mutated.
+ */
+@Component
+@Slf4j
+public class LoadCoalescer {
+
+    private final MeterRegistry meterRegistry;
+    private final Duration timeout;
+    private final Map<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public LoadCoalescer(
+            MeterRegistry meterRegistry,
+            @Value("${app.catalog.coalescing.timeout:2s}") Duration timeout
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+        meterRegistry.gaugeMapSize("coalescer.in.flight", Tags.empty(), inFlight);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V load(String loader, Object key, Supplier<V> load) {
+        FlightKey flightKey = new FlightKey(loader, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing == null) {
+            count(loader, "leader");
+            try {
+                V value = timer(loader).record(load);
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(flightKey, flight);
+            }
+        }
+
+        try {
+            V value = (V) existing.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            count(loader, "shared");
+            return value;
+        } catch (TimeoutException e) {
+            count(loader, "timeout");
+            log.warn("Gave up waiting {} for in-flight {} load of {}, loading separately", timeout, loader, key);
+            return timer(loader).record(load);
+        } catch (ExecutionException e) {
+            count(loader, "shared");
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + loader + " load", e);
+        }
+    }
+
+    private void count(String loader, String outcome) {
+        meterRegistry.counter("coalescer.loads", "loader", loader, "outcome", outcome).increment();
+    }
+
+    private Timer timer(String loader) {
+        return meterRegistry.timer("coalescer.load.duration", "loader", loader);
+    }
+
+    private record FlightKey(String loader, Object key) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.jaee.catalog;
+
+import com.jaee.exception.NotFoundException;
+
+/**
+ * Home-page product collections, all ordered newest first.
+ */
+public enum ProductCollection {
+    /** Every active product. */
+    FEATURED("featured"),
+    /** Active products whose compare-at price is above the price. */
+    ON_SALE("on-sale"),
+    /** The {@code app.catalog.collections.new-arrivals-size} newest active products. */
+    NEW_ARRIVALS("new-arrivals");
+
+    private final String slug;
+
+    ProductCollection(String slug) {
+        this.slug = slug;
+    }
+
+    public String getSlug() {
+        return slug;
+    }
+
+    public static ProductCollection fromSlug(String slug) {
+        for (ProductCollection collection : values()) {
+            if (collection.slug.equals(slug)) {
+                return collection;
+            }
+        }
+        throw new NotFoundException("Collection not found");
+    }
+}
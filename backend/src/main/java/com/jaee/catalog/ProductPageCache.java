@@ -0,0 +1,193 @@
+package com.jaee.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jaee.dto.common.ApiResponse;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.event.CatalogSyncEvent;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.event.StockChangedEvent;
+import com.jaee.service.ProductService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Product detail responses, fully encoded ({@code ApiResponse<ProductDto>} JSON and
+ * optionally its gzip), keyed by slug and bounded by total byte weight. Hits are written
+ * to the response as-is, with no DTO mapping or Jackson work.
+ * <p>
+ * Invalidation is by sequence number: every page remembers the sequence at which its load
+ * started, and product/stock events stamp the affected product ids with a newer one. A
+ * page older than its product's stamp is reloaded, which also covers loads that raced the
+ * committing transaction and stock events or writes from other instances that only carry ids.
+ */
+@Component
+@Slf4j
+public class ProductPageCache {
+
+    private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    @Getter
+    private final boolean gzipEnabled;
+
+    private final Cache<String, EncodedPage> pages;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, Long> invalidatedAt = new ConcurrentHashMap<>();
+    private volatile long clearedAt;
+
+    public ProductPageCache(
+            ProductService productService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.catalog.product-page-cache.enabled:true}") boolean enabled,
+            @Value("${app.catalog.product-page-cache.gzip:true}") boolean gzipEnabled,
+            @Value("${app.catalog.product-page-cache.max-weight:16MB}") DataSize maxWeight
+    ) {
+        this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.gzipEnabled = gzipEnabled;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((String slug, EncodedPage page) -> page.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "productPages");
+    }
+
+    /**
+     * Encoded response for the product with this slug, loading it on a miss.
+     *
+     * @throws com.jaee.exception.NotFoundException if there is no such product (not cached)
+     */
+    public EncodedPage get(String slug) {
+        if (!enabled) {
+            return load(slug);
+        }
+        EncodedPage page = pages.get(slug, this::load);
+        if (isStale(page)) {
+            pages.asMap().remove(slug, page);
+            page = pages.get(slug, this::load);
+        }
+        return page;
+    }
+
+    /**
+     * Whether an Accept-Encoding header value admits gzip.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        long stamp = sequence.incrementAndGet();
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            invalidatedAt.put(change.getProductId(), stamp);
+            if (change.getBefore() != null) {
+                pages.invalidate(change.getBefore().getSlug());
+            }
+            if (change.getAfter() != null) {
+                pages.invalidate(change.getAfter().getSlug());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        long stamp = sequence.incrementAndGet();
+        for (Long productId : event.getDeltas().keySet()) {
+            invalidatedAt.put(productId, stamp);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Pages embed the category name; category changes are rare enough to drop everything
+        clearedAt = sequence.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    @EventListener
+    public void onCatalogSync(CatalogSyncEvent event) {
+        if (event.isCategoriesChanged()) {
+            clearedAt = sequence.incrementAndGet();
+            pages.invalidateAll();
+        }
+        long stamp = sequence.incrementAndGet();
+        for (Long productId : event.getProductIds()) {
+            invalidatedAt.put(productId, stamp);
+        }
+    }
+
+    private boolean isStale(EncodedPage page) {
+        if (page.getLoadedAt() < clearedAt) {
+            return true;
+        }
+        Long stamp = invalidatedAt.get(page.getProductId());
+        return stamp != null && page.getLoadedAt() < stamp;
+    }
+
+    private EncodedPage load(String slug) {
+        long loadedAt = sequence.get();
+        ProductDto product = productService.getProductBySlug(slug);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(ApiResponse.success(product));
+            return new EncodedPage(product.getId(), loadedAt, json, gzipEnabled ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode product " + slug, e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class EncodedPage {
+        private final Long productId;
+        private final long loadedAt;
+        private final byte[] json;
+        private final byte[] gzipped;
+
+        int weight() {
+            return json.length + (gzipped != null ? gzipped.length : 0);
+        }
+    }
+}
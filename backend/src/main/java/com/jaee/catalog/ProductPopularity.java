@@ -0,0 +1,52 @@
+package com.jaee.catalog;
+
+import com.jaee.entity.Order.OrderStatus;
+import com.jaee.event.OrderPaidEvent;
+import com.jaee.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Units sold per product, used to rank products. Loaded from order history at startup
+ * and kept current from {@link OrderPaidEvent}s.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductPopularity {
+
+    static final EnumSet<OrderStatus> SOLD = EnumSet.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.FULFILLED);
+
+    private final OrderRepository orderRepository;
+
+    private final Map<Long, Long> unitsSold = new ConcurrentHashMap<>();
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        for (OrderRepository.ProductUnits row : orderRepository.sumUnitsByProduct(SOLD)) {
+            unitsSold.put(row.getProductId(), row.getUnits());
+        }
+        log.info("Loaded sales counts for {} products", unitsSold.size());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderPaid(OrderPaidEvent event) {
+        event.getQuantities().forEach((productId, qty) -> unitsSold.merge(productId, (long) qty, Long::sum));
+    }
+
+    public long unitsSold(Long productId) {
+        return unitsSold.getOrDefault(productId, 0L);
+    }
+}
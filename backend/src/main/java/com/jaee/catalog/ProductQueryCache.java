@@ -0,0 +1,159 @@
+package com.jaee.catalog;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.event.CatalogSyncEvent;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.ProductChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Results of product listing and search queries that go to the database: the page of ids
+ * and the total, keyed by the normalized filter tuple and bounded by estimated byte weight.
+ * Concurrent misses on one key run the query once and share its result.
+ * <p>
+ * A product write only drops the entries it can affect: those whose category and price
+ * filters match the product before or after the write. A category rename drops every
+ * search entry, since the category name is part of the search vector. Writes made by other
+ * instances arrive without the product's previous state, so they drop every entry. An
+ * entry whose query overlapped a write is handed to its callers but not kept.
+ */
+@Component
+public class ProductQueryCache {
+
+    private final boolean enabled;
+    private final Cache<Key, IdPage> pages;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public ProductQueryCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.catalog.query-cache.enabled:true}") boolean enabled,
+            @Value("${app.catalog.query-cache.max-weight:4MB}") DataSize maxWeight
+    ) {
+        this.enabled = enabled;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxWeight.toBytes())
+                .weigher((Key key, IdPage page) -> key.weight() + page.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "productQueries");
+    }
+
+    /**
+     * The cached page for this query, running {@code query} on a miss.
+     */
+    public IdPage get(Key key, Supplier<Page<Long>> query) {
+        if (!enabled) {
+            return IdPage.of(query.get(), 0, 0);
+        }
+        IdPage page = pages.get(key, k -> {
+            long startedAt = sequence.get();
+            return IdPage.of(query.get(), startedAt, sequence.get());
+        });
+        if (page.isRacedWrite()) {
+            pages.asMap().remove(key, page);
+        }
+        return page;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        sequence.incrementAndGet();
+        List<ProductDto> states = new ArrayList<>();
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            if (change.getBefore() != null) {
+                states.add(change.getBefore());
+            }
+            if (change.getAfter() != null) {
+                states.add(change.getAfter());
+            }
+        }
+        pages.asMap().keySet().removeIf(key -> states.stream().anyMatch(key::matches));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        if (!event.isRename()) {
+            return;
+        }
+        sequence.incrementAndGet();
+        pages.asMap().keySet().removeIf(key -> key.search() != null);
+    }
+
+    @EventListener
+    public void onCatalogSync(CatalogSyncEvent event) {
+        if (event.getProductIds().isEmpty()) {
+            return;
+        }
+        sequence.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    /**
+     * Normalized listing query. {@code search} is the tsquery (null for plain listing) and
+     * {@code sort} the resolved sort field; prices are compared by value, not scale.
+     */
+    public record Key(String search, Long categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                      String sort, boolean descending, int page, int size) {
+
+        public Key {
+            minPrice = minPrice != null ? minPrice.stripTrailingZeros() : null;
+            maxPrice = maxPrice != null ? maxPrice.stripTrailingZeros() : null;
+        }
+
+        /**
+         * Whether a product in this state passes the query's category and price filters,
+         * i.e. whether it can appear in (or leave) the result.
+         */
+        boolean matches(ProductDto product) {
+            if (categoryId != null && !categoryId.equals(product.getCategoryId())) {
+                return false;
+            }
+            BigDecimal price = product.getPrice();
+            if (price == null) {
+                return true;
+            }
+            return (minPrice == null || price.compareTo(minPrice) >= 0)
+                    && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+        }
+
+        int weight() {
+            return 96 + (search != null ? 2 * search.length() : 0);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class IdPage {
+        private final List<Long> ids;
+        private final int number;
+        private final int size;
+        private final long totalElements;
+        private final boolean racedWrite;
+
+        static IdPage of(Page<Long> page, long startedAt, long finishedAt) {
+            return new IdPage(List.copyOf(page.getContent()), page.getNumber(), page.getSize(),
+                    page.getTotalElements(), finishedAt != startedAt);
+        }
+
+        int weight() {
+            return 48 + 24 * ids.size();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.jaee.catalog;
+
+import com.jaee.entity.ProductStats;
+import com.jaee.repository.ProductStatsRepository;
+import com.jaee.util.LongObjectHashMap;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Product view and add-to-cart counters with write-behind to {@code product_stats}.
+ *
+ * Recording is an increment of a {@link LongAdder}; the adders live in striped,
+ * copy-on-write primitive maps, so the request path never locks once a product has
+ * been seen and never touches the database. A scheduled flush swaps each product's
+ * adders for fresh ones and writes what the old ones counted with one upsert statement.
+ * Adders are never reset, so an increment racing the flush is not lost: a swapped-out
+ * window is drained once more by the next flush.
+ *
+ * Popularity (see {@link ProductStats#ADD_TO_CART_WEIGHT}) is as of the last flush.
+ */
+@Component
+@Slf4j
+public class ProductStatsTracker {
+
+    private static final int STRIPES = 16;
+
+    // Deltas are joined to products so ids deleted since they were counted are dropped
+    private static final String UPSERT_SQL = """
+            INSERT INTO product_stats (product_id, views, add_to_carts, updated_at)
+            SELECT d.product_id, d.views, d.add_to_carts, now()
+            FROM unnest(?::bigint[], ?::bigint[], ?::bigint[]) AS d(product_id, views, add_to_carts)
+            JOIN products p ON p.id = d.product_id
+            ON CONFLICT (product_id) DO UPDATE SET
+                views = product_stats.views + EXCLUDED.views,
+                add_to_carts = product_stats.add_to_carts + EXCLUDED.add_to_carts,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private final ProductStatsRepository productStatsRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    // Totals as of the last flush, replaced wholesale by each flush
+    private volatile Map<Long, Long> scores = Map.of();
+    private volatile long scoresVersion;
+    private volatile CachedRanking ranking;
+
+    public ProductStatsTracker(ProductStatsRepository productStatsRepository, DataSource dataSource) {
+        this.productStatsRepository = productStatsRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        Map<Long, Long> loaded = new HashMap<>();
+        for (ProductStats stats : productStatsRepository.findAll()) {
+            loaded.put(stats.getProductId(), score(stats.getViews(), stats.getAddToCarts()));
+        }
+        scores = loaded;
+        scoresVersion++;
+        log.info("Loaded product stats for {} products", loaded.size());
+    }
+
+    public void recordView(long productId) {
+        counters(productId).window.views.increment();
+    }
+
+    public void recordAddToCart(long productId) {
+        counters(productId).window.addToCarts.increment();
+    }
+
+    /**
+     * The products of the snapshot ordered by popularity. Rebuilt only when the snapshot
+     * or the flushed totals have changed since the last call.
+     */
+    public CatalogSnapshot.Ranking ranking(CatalogSnapshot snapshot) {
+        CachedRanking cached = ranking;
+        long version = scoresVersion;
+        if (cached != null && cached.scoresVersion == version && cached.ranking.getVersion() == snapshot.getVersion()) {
+            return cached.ranking;
+        }
+        Map<Long, Long> current = scores;
+        CatalogSnapshot.Ranking next = snapshot.rank(product -> current.getOrDefault(product.getId(), 0L));
+        ranking = new CachedRanking(version, next);
+        return next;
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.stats.flush-interval-ms:30000}")
+    @PreDestroy
+    public synchronized void flush() {
+        List<Counters> drained = new ArrayList<>();
+        List<Long> ids = new ArrayList<>();
+        List<Long> views = new ArrayList<>();
+        List<Long> addToCarts = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.counters.forEach((productId, counters) -> {
+                Window previous = counters.retired;
+                Window current = counters.window;
+                counters.retired = null;
+                if (current.views.sum() != 0 || current.addToCarts.sum() != 0) {
+                    counters.window = new Window();
+                    counters.retired = current;
+                } else {
+                    current = null;
+                }
+                long viewDelta = Window.takeViews(previous) + Window.takeViews(current);
+                long cartDelta = Window.takeAddToCarts(previous) + Window.takeAddToCarts(current);
+                if (viewDelta != 0 || cartDelta != 0) {
+                    drained.add(counters);
+                    ids.add(productId);
+                    views.add(viewDelta);
+                    addToCarts.add(cartDelta);
+                }
+            });
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(UPSERT_SQL);
+                statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+                statement.setArray(2, connection.createArrayOf("bigint", views.toArray()));
+                statement.setArray(3, connection.createArrayOf("bigint", addToCarts.toArray()));
+                return statement;
+            });
+        } catch (RuntimeException e) {
+            // Put the counts back so the next flush retries them
+            for (int i = 0; i < drained.size(); i++) {
+                drained.get(i).window.views.add(views.get(i));
+                drained.get(i).window.addToCarts.add(addToCarts.get(i));
+            }
+            log.warn("Failed to flush stats for {} products: {}", ids.size(), e.getMessage());
+            return;
+        }
+
+        Map<Long, Long> next = new HashMap<>(scores);
+        for (int i = 0; i < ids.size(); i++) {
+            next.merge(ids.get(i), score(views.get(i), addToCarts.get(i)), Long::sum);
+        }
+        scores = next;
+        scoresVersion++;
+        log.debug("Flushed stats for {} products", ids.size());
+    }
+
+    private Counters counters(long productId) {
+        Stripe stripe = stripes[(int) (productId ^ (productId >>> 32)) & (STRIPES - 1)];
+        Counters counters = stripe.counters.get(productId);
+        if (counters != null) {
+            return counters;
+        }
+        synchronized (stripe) {
+            counters = stripe.counters.get(productId);
+            if (counters == null) {
+                LongObjectHashMap<Counters> next = stripe.counters.copy();
+                counters = next.computeIfAbsent(productId, id -> new Counters());
+                stripe.counters = next;
+            }
+            return counters;
+        }
+    }
+
+    private static long score(long views, long addToCarts) {
+        return views + ProductStats.ADD_TO_CART_WEIGHT * addToCarts;
+    }
+
+    /**
+     * One shard of the counter map. Readers use the published map without locking;
+     * a product's first count copies the shard under its lock.
+     */
+    private static final class Stripe {
+        volatile LongObjectHashMap<Counters> counters = new LongObjectHashMap<>();
+    }
+
+    private static final class Counters {
+        // Where new counts go; swapped by flush
+        volatile Window window = new Window();
+        // Swapped out by the last flush; a recorder may still have been holding it
+        Window retired;
+    }
+
+    /**
+     * Counts since a product's adders were last swapped, and how much of them has been
+     * flushed (guarded by the flush lock).
+     */
+    private static final class Window {
+        final LongAdder views = new LongAdder();
+        final LongAdder addToCarts = new LongAdder();
+        long viewsTaken;
+        long addToCartsTaken;
+
+        static long takeViews(Window window) {
+            if (window == null) {
+                return 0;
+            }
+            long delta = window.views.sum() - window.viewsTaken;
+            window.viewsTaken += delta;
+            return delta;
+        }
+
+        static long takeAddToCarts(Window window) {
+            if (window == null) {
+                return 0;
+            }
+            long delta = window.addToCarts.sum() - window.addToCartsTaken;
+            window.addToCartsTaken += delta;
+            return delta;
+        }
+    }
+
+    private record CachedRanking(long scoresVersion, CatalogSnapshot.Ranking ranking) {
+    }
+}
@@ -0,0 +1,232 @@
+package com.jaee.catalog;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable prefix trie for typeahead. Every node keeps the top-ranked entries of its
+ * subtree, so a lookup is a walk down the prefix plus a copy of at most {@code capacity}
+ * entries. {@link #add} and {@link #remove} copy only the nodes on the changed paths and
+ * share the rest, so a published trie can be read without locking.
+ *
+ * An entry is indexed under every word-suffix of its texts ("lavender dream candle" is
+ * reachable from "lav", "dream c" and "cand"). Ranking is by score, then label, then id.
+ */
+public final class SuggestTrie<T> {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final char[] NO_KEYS = new char[0];
+
+    private static final Comparator<Entry<?>> RANK = (a, b) -> {
+        int result = Long.compare(b.score, a.score);
+        if (result == 0) {
+            result = String.CASE_INSENSITIVE_ORDER.compare(a.label, b.label);
+        }
+        return result != 0 ? result : Long.compare(a.id, b.id);
+    };
+
+    private final int capacity;
+    private final Node<T> root;
+
+    private SuggestTrie(int capacity, Node<T> root) {
+        this.capacity = capacity;
+        this.root = root;
+    }
+
+    public static <T> SuggestTrie<T> empty(int capacity) {
+        return new SuggestTrie<>(capacity, null);
+    }
+
+    public SuggestTrie<T> add(Entry<T> entry) {
+        Node<T> next = root;
+        for (String term : entry.terms) {
+            next = insert(next, term, 0, entry);
+        }
+        return new SuggestTrie<>(capacity, next);
+    }
+
+    public SuggestTrie<T> remove(Entry<T> entry) {
+        Node<T> next = root;
+        for (String term : entry.terms) {
+            next = delete(next, term, 0, entry.id);
+        }
+        return new SuggestTrie<>(capacity, next);
+    }
+
+    /**
+     * Best entries whose indexed text starts with the prefix, at most {@code limit}
+     * (and never more than the trie's capacity).
+     */
+    public List<T> top(String prefix, int limit) {
+        String key = normalize(prefix);
+        Node<T> node = key.isEmpty() ? null : root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        int count = Math.min(limit, node.top.size());
+        List<T> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(node.top.get(i).value);
+        }
+        return result;
+    }
+
+    /**
+     * Lower-cases, strips accents and collapses punctuation to single spaces.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return NON_WORD.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private Node<T> insert(Node<T> node, String term, int index, Entry<T> entry) {
+        char[] keys = node != null ? node.keys : NO_KEYS;
+        List<Node<T>> children = node != null ? node.children : List.of();
+        List<Entry<T>> terminals = node != null ? node.terminals : List.of();
+        if (index == term.length()) {
+            List<Entry<T>> nextTerminals = new ArrayList<>(terminals.size() + 1);
+            nextTerminals.addAll(terminals);
+            nextTerminals.add(entry);
+            return node(keys, children, nextTerminals);
+        }
+        int position = Arrays.binarySearch(keys, term.charAt(index));
+        List<Node<T>> nextChildren = new ArrayList<>(children);
+        if (position >= 0) {
+            nextChildren.set(position, insert(children.get(position), term, index + 1, entry));
+            return node(keys, nextChildren, terminals);
+        }
+        int at = -(position + 1);
+        char[] nextKeys = new char[keys.length + 1];
+        System.arraycopy(keys, 0, nextKeys, 0, at);
+        nextKeys[at] = term.charAt(index);
+        System.arraycopy(keys, at, nextKeys, at + 1, keys.length - at);
+        nextChildren.add(at, insert(null, term, index + 1, entry));
+        return node(nextKeys, nextChildren, terminals);
+    }
+
+    /**
+     * Returns the node without the entry under {@code term}, or null if nothing is left.
+     */
+    private Node<T> delete(Node<T> node, String term, int index, long id) {
+        if (node == null) {
+            return null;
+        }
+        if (index == term.length()) {
+            List<Entry<T>> nextTerminals = new ArrayList<>(node.terminals);
+            if (!nextTerminals.removeIf(entry -> entry.id == id)) {
+                return node;
+            }
+            return nextTerminals.isEmpty() && node.keys.length == 0 ? null : node(node.keys, node.children, nextTerminals);
+        }
+        int position = Arrays.binarySearch(node.keys, term.charAt(index));
+        if (position < 0) {
+            return node;
+        }
+        Node<T> child = node.children.get(position);
+        Node<T> nextChild = delete(child, term, index + 1, id);
+        if (nextChild == child) {
+            return node;
+        }
+        List<Node<T>> nextChildren = new ArrayList<>(node.children);
+        char[] nextKeys = node.keys;
+        if (nextChild != null) {
+            nextChildren.set(position, nextChild);
+        } else {
+            nextChildren.remove(position);
+            nextKeys = new char[node.keys.length - 1];
+            System.arraycopy(node.keys, 0, nextKeys, 0, position);
+            System.arraycopy(node.keys, position + 1, nextKeys, position, nextKeys.length - position);
+        }
+        return nextKeys.length == 0 && node.terminals.isEmpty() ? null : node(nextKeys, nextChildren, node.terminals);
+    }
+
+    private Node<T> node(char[] keys, List<Node<T>> children, List<Entry<T>> terminals) {
+        // A node's best entries are the best of its own terminals and its children's best
+        List<Entry<T>> candidates = new ArrayList<>(terminals);
+        for (Node<T> child : children) {
+            candidates.addAll(child.top);
+        }
+        candidates.sort(RANK);
+        List<Entry<T>> top = new ArrayList<>(Math.min(capacity, candidates.size()));
+        Set<Long> seen = new HashSet<>();
+        for (Entry<T> candidate : candidates) {
+            if (top.size() == capacity) {
+                break;
+            }
+            if (seen.add(candidate.id)) {
+                top.add(candidate);
+            }
+        }
+        return new Node<>(keys, List.copyOf(children), List.copyOf(terminals), top);
+    }
+
+    private static final class Node<T> {
+        final char[] keys;
+        final List<Node<T>> children;
+        final List<Entry<T>> terminals;
+        final List<Entry<T>> top;
+
+        Node(char[] keys, List<Node<T>> children, List<Entry<T>> terminals, List<Entry<T>> top) {
+            this.keys = keys;
+            this.children = children;
+            this.terminals = terminals;
+            this.top = top;
+        }
+
+        Node<T> child(char key) {
+            int position = Arrays.binarySearch(keys, key);
+            return position >= 0 ? children.get(position) : null;
+        }
+    }
+
+    /**
+     * A suggestion together with the ranking data and the terms it is indexed under.
+     * Entries are identified by id; re-rank by removing the entry and adding
+     * {@link #withScore}.
+     */
+    public static final class Entry<T> {
+        private final long id;
+        private final T value;
+        private final String label;
+        private final long score;
+        private final Set<String> terms;
+
+        public Entry(long id, T value, String label, long score, String... texts) {
+            this(id, value, label, score, terms(texts));
+        }
+
+        private Entry(long id, T value, String label, long score, Set<String> terms) {
+            this.id = id;
+            this.value = value;
+            this.label = label != null ? label : "";
+            this.score = score;
+            this.terms = terms;
+        }
+
+        public Entry<T> withScore(long newScore) {
+            return new Entry<>(id, value, label, newScore, terms);
+        }
+
+        private static Set<String> terms(String... texts) {
+            Set<String> terms = new LinkedHashSet<>();
+            for (String text : texts) {
+                String normalized = normalize(text);
+                int start = normalized.isEmpty() ? -1 : 0;
+                while (start >= 0) {
+                    terms.add(normalized.substring(start));
+                    int space = normalized.indexOf(' ', start);
+                    start = space >= 0 ? space + 1 : -1;
+                }
+            }
+            return terms;
+        }
+    }
+}
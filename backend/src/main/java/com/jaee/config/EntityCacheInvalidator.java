@@ -0,0 +1,235 @@
+package com.jaee.config;
+
+import com.jaee.entity.Category;
+import com.jaee.entity.Product;
+import com.jaee.entity.User;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the Hibernate second-level cache coherent across instances. Database triggers
+ * (see V19 migration) send {@code <table>:<id>} on the {@code l2_cache_invalidation}
+ * channel for every committed change to a cached table; this listens on a dedicated
+ * connection, outside the pool, and evicts the matching entry. Notifications from this
+ * instance's own writes arrive too and cost one reload.
+ * <p>
+ * LISTEN needs a session of its own, which a transaction-mode pooler (PgBouncer, the
+ * pooled Supabase/Neon endpoints) does not give: the listener would connect and then hear
+ * nothing. {@code app.entity-cache.invalidation.url} can therefore point at a direct
+ * connection, and at startup a probe NOTIFY is sent through the pool and must reach the
+ * listener. Unless {@code app.single-node} is set, startup fails when the listener is
+ * disabled or the probe is not heard, rather than serving other instances' writes stale.
+ * <p>
+ * Notifications sent while the connection is down are lost, so the whole cache is
+ * cleared whenever it (re)connects.
+ */
+@Component
+@Slf4j
+public class EntityCacheInvalidator {
+
+    private static final String CHANNEL = "l2_cache_invalidation";
+
+    private static final int POLL_TIMEOUT_MS = 10_000;
+
+    private static final String PROBE_PREFIX = "probe:";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache cache;
+    private final boolean enabled;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Duration reconnectDelay;
+    private final Duration probeTimeout;
+    private final boolean singleNode;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread listener;
+
+    public EntityCacheInvalidator(
+            DataSourceProperties dataSourceProperties,
+            DataSource dataSource,
+            EntityManagerFactory entityManagerFactory,
+            @Value("${app.entity-cache.invalidation.enabled:true}") boolean enabled,
+            @Value("${app.entity-cache.invalidation.url:}") String url,
+            @Value("${app.entity-cache.invalidation.username:}") String username,
+            @Value("${app.entity-cache.invalidation.password:}") String password,
+            @Value("${app.entity-cache.invalidation.reconnect-delay:5s}") Duration reconnectDelay,
+            @Value("${app.entity-cache.invalidation.probe-timeout:5s}") Duration probeTimeout,
+            @Value("${app.single-node:false}") boolean singleNode
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.enabled = enabled;
+        // Without a URL of its own the listener shares the pool's database and credentials
+        this.url = url.isBlank() ? dataSourceProperties.determineUrl() : url;
+        this.username = username.isBlank() ? dataSourceProperties.determineUsername() : username;
+        this.password = password.isBlank() ? dataSourceProperties.determinePassword() : password;
+        this.reconnectDelay = reconnectDelay;
+        this.probeTimeout = probeTimeout;
+        this.singleNode = singleNode;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || url == null || !url.startsWith("jdbc:postgresql:")) {
+            unavailable("Entity cache invalidation listener disabled");
+            return;
+        }
+        running = true;
+        try {
+            connect();
+            if (!probe()) {
+                throw new SQLException("a probe NOTIFY sent through the pool did not arrive within " + probeTimeout
+                        + " (is app.entity-cache.invalidation.url a transaction-mode pooler?)");
+            }
+        } catch (SQLException e) {
+            running = false;
+            closeQuietly();
+            unavailable("Entity cache invalidation listener is not receiving notifications: " + e.getMessage());
+            return;
+        }
+        listener = Thread.ofPlatform().daemon().name("l2-cache-invalidation").start(this::listen);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+        closeQuietly();
+    }
+
+    private void listen() {
+        while (running) {
+            try {
+                // The first connection is made (and probed) by start()
+                if (connection == null) {
+                    connect();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            evict(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Entity cache invalidation listener lost its connection, retrying in {}: {}",
+                            reconnectDelay, e.getMessage());
+                }
+            } finally {
+                closeQuietly();
+            }
+            if (running) {
+                try {
+                    Thread.sleep(reconnectDelay.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void connect() throws SQLException {
+        connection = DriverManager.getConnection(url, username, password);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN " + CHANNEL);
+        }
+        cache.evictAllRegions();
+        log.info("Listening for entity cache invalidations on {}", CHANNEL);
+    }
+
+    /**
+     * Sends a NOTIFY through the pool, as the triggers do for application writes, and
+     * waits for the listener connection to receive it.
+     */
+    private boolean probe() throws SQLException {
+        String payload = PROBE_PREFIX + UUID.randomUUID();
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long deadline = System.nanoTime() + probeTimeout.toNanos();
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            PGNotification[] notifications = pgConnection.getNotifications(
+                    (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(left)));
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    if (payload.equals(notification.getParameter())) {
+                        return true;
+                    }
+                    evict(notification.getParameter());
+                }
+            }
+        }
+        return false;
+    }
+
+    private void unavailable(String reason) {
+        if (!singleNode) {
+            throw new IllegalStateException(reason + ". Other instances' writes would be served stale from the"
+                    + " second-level cache: point app.entity-cache.invalidation.url at a direct (non-pooled)"
+                    + " database connection, or set app.single-node=true if only one instance runs");
+        }
+        log.info("{} - cached entities are only evicted by local writes", reason);
+    }
+
+    private void evict(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            return;
+        }
+        Long id;
+        try {
+            id = Long.valueOf(payload.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed cache invalidation: {}", payload);
+            return;
+        }
+        switch (payload.substring(0, separator)) {
+            case "products" -> cache.evictEntityData(Product.class, id);
+            case "product_images" -> cache.evictCollectionData(Product.class.getName() + ".images", id);
+            case "categories" -> cache.evictEntityData(Category.class, id);
+            case "users" -> cache.evictEntityData(User.class, id);
+            default -> log.debug("Ignoring cache invalidation for {}", payload);
+        }
+    }
+
+    private void closeQuietly() {
+        Connection current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException e) {
+                log.debug("Failed to close cache invalidation connection", e);
+            }
+        }
+    }
+}
@@ -3,18 +3,34 @@ package com.jaee.controller;
 import com.jaee.dto.category.CategoryCreateRequest;
 import com.jaee.dto.category.CategoryDto;
 import com.jaee.dto.common.ApiResponse;
+import com.jaee.dto.product.HotStockDto;
 import com.jaee.dto.product.ProductCreateRequest;
 import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.Order.OrderStatus;
+import com.jaee.dto.product.ProductImportResultDto;
 import com.jaee.service.CategoryService;
+import com.jaee.service.ExportService;
+import com.jaee.service.HotStockService;
+import com.jaee.service.ProductImportService;
 import com.jaee.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/admin")
@@ -26,6 +42,9 @@ public class AdminController {
 
     private final CategoryService categoryService;
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ExportService exportService;
+    private final HotStockService hotStockService;
 
     // Category endpoints
     @PostMapping("/categories")
@@ -60,6 +79,17 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success("Product created", product));
     }
 
+    @PostMapping(value = "/products/import", consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(summary = "Create or update products in bulk from CSV or NDJSON, matched by slug")
+    public ResponseEntity<ApiResponse<ProductImportResultDto>> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) throws IOException {
+        ProductImportResultDto result = productImportService.importProducts(
+                body, ProductImportService.Format.fromContentType(contentType));
+        return ResponseEntity.ok(ApiResponse.success("Products imported", result));
+    }
+
     @PutMapping("/products/{id}")
     @Operation(summary = "Update a product")
     public ResponseEntity<ApiResponse<ProductDto>> updateProduct(
@@ -76,4 +106,67 @@ public class AdminController {
         productService.deleteProduct(id);
         return ResponseEntity.ok(ApiResponse.success("Product deleted", null));
     }
+
+    @GetMapping("/products/{id}/hot-stock")
+    @Operation(summary = "Show whether a product is in flash-sale mode and the units left in its counters")
+    public ResponseEntity<ApiResponse<HotStockDto>> getHotStock(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success(hotStockService.status(id)));
+    }
+
+    @PutMapping("/products/{id}/hot-stock")
+    @Operation(summary = "Switch a product to flash-sale mode: checkouts claim units from in-memory counters")
+    public ResponseEntity<ApiResponse<HotStockDto>> enableHotStock(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success("Flash-sale mode enabled", hotStockService.enable(id)));
+    }
+
+    @DeleteMapping("/products/{id}/hot-stock")
+    @Operation(summary = "Switch a product out of flash-sale mode after flushing its claimed units")
+    public ResponseEntity<ApiResponse<HotStockDto>> disableHotStock(@PathVariable Long id) {
+        return ResponseEntity.ok(ApiResponse.success("Flash-sale mode disabled", hotStockService.disable(id)));
+    }
+
+    // Export endpoints
+    @GetMapping("/export/products")
+    @Operation(summary = "Export all products with their images as NDJSON or CSV")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        ExportService.Format exportFormat = ExportService.Format.fromParam(format);
+        return export("products", exportFormat, gzip, out -> exportService.exportProducts(out, exportFormat));
+    }
+
+    @GetMapping("/export/orders")
+    @Operation(summary = "Export orders with their items as NDJSON or CSV, optionally by status and date range")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip
+    ) {
+        ExportService.Format exportFormat = ExportService.Format.fromParam(format);
+        return export("orders", exportFormat, gzip, out -> exportService.exportOrders(out, exportFormat, status, from, to));
+    }
+
+    /**
+     * Streams the export as a download. The body is written on an async thread after
+     * this method returns, so the database connection is only taken once the client
+     * is actually reading.
+     */
+    private ResponseEntity<StreamingResponseBody> export(String name, ExportService.Format format, boolean gzip,
+                                                         StreamingResponseBody export) {
+        String filename = name + "-" + LocalDate.now() + "." + format.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = gzip
+                ? out -> {
+                    GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                    export.writeTo(gzipOut);
+                    gzipOut.finish();
+                }
+                : export;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
 }
@@ -1,5 +1,6 @@
 package com.jaee.controller;
 
+import com.jaee.catalog.CatalogVersion;
 import com.jaee.dto.category.CategoryDto;
 import com.jaee.dto.common.ApiResponse;
 import com.jaee.service.CategoryService;
@@ -11,6 +12,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -21,18 +23,17 @@ import java.util.List;
 public class CategoryController {
 
     private final CategoryService categoryService;
+    private final CatalogVersion catalogVersion;
 
     @GetMapping
     @Operation(summary = "Get all categories")
-    public ResponseEntity<ApiResponse<List<CategoryDto>>> getAllCategories() {
-        List<CategoryDto> categories = categoryService.getAllCategories();
-        return ResponseEntity.ok(ApiResponse.success(categories));
+    public ResponseEntity<ApiResponse<List<CategoryDto>>> getAllCategories(WebRequest webRequest) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(categoryService.getAllCategories()));
     }
 
     @GetMapping("/{slug}")
     @Operation(summary = "Get category by slug")
-    public ResponseEntity<ApiResponse<CategoryDto>> getCategoryBySlug(@PathVariable String slug) {
-        CategoryDto category = categoryService.getCategoryBySlug(slug);
-        return ResponseEntity.ok(ApiResponse.success(category));
+    public ResponseEntity<ApiResponse<CategoryDto>> getCategoryBySlug(@PathVariable String slug, WebRequest webRequest) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(categoryService.getCategoryBySlug(slug)));
     }
 }
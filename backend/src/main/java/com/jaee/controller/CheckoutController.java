@@ -2,9 +2,11 @@ package com.jaee.controller;
 
 import com.jaee.dto.common.ApiResponse;
 import com.jaee.entity.User;
+import com.jaee.idempotency.IdempotencyFilter;
 import com.jaee.service.CheckoutService;
-import com.razorpay.RazorpayException;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -28,10 +30,12 @@ public class CheckoutController {
 
     @PostMapping("/create-order")
     @Operation(summary = "Create Razorpay order for checkout")
+    @Parameter(in = ParameterIn.HEADER, name = IdempotencyFilter.HEADER,
+            description = "Optional; repeats with the same key get the first response replayed")
     public ResponseEntity<ApiResponse<Map<String, Object>>> createOrder(
             @AuthenticationPrincipal User user,
             @RequestBody(required = false) CreateOrderRequest request
-    ) throws RazorpayException {
+    ) {
         Long addressId = request != null ? request.getAddressId() : null;
         Map<String, Object> orderData = checkoutService.createOrder(user, addressId);
         return ResponseEntity.ok(ApiResponse.success("Order created successfully", orderData));
@@ -44,6 +48,8 @@ public class CheckoutController {
 
     @PostMapping("/verify-payment")
     @Operation(summary = "Verify Razorpay payment after checkout")
+    @Parameter(in = ParameterIn.HEADER, name = IdempotencyFilter.HEADER,
+            description = "Optional; repeats with the same key get the first response replayed")
     public ResponseEntity<ApiResponse<Map<String, Object>>> verifyPayment(
             @AuthenticationPrincipal User user,
             @Valid @RequestBody PaymentVerificationRequest request
@@ -2,6 +2,7 @@ package com.jaee.controller;
 
 import com.jaee.dto.common.ApiResponse;
 import com.jaee.dto.common.PageResponse;
+import com.jaee.dto.common.SliceResponse;
 import com.jaee.dto.order.OrderDto;
 import com.jaee.entity.User;
 import com.jaee.service.OrderService;
@@ -33,6 +34,17 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success(orders));
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Get current user's orders using cursor pagination")
+    public ResponseEntity<ApiResponse<SliceResponse<OrderDto>>> scrollUserOrders(
+            @AuthenticationPrincipal User user,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size
+    ) {
+        SliceResponse<OrderDto> orders = orderService.scrollUserOrders(user, cursor, size);
+        return ResponseEntity.ok(ApiResponse.success(orders));
+    }
+
     @GetMapping("/{orderId}")
     @Operation(summary = "Get order by ID")
     public ResponseEntity<ApiResponse<OrderDto>> getOrderById(
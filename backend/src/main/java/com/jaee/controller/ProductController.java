@@ -1,14 +1,28 @@
 package com.jaee.controller;
 
+import com.jaee.catalog.CatalogVersion;
+import com.jaee.catalog.ProductPageCache;
+import com.jaee.catalog.ProductStatsTracker;
 import com.jaee.dto.common.ApiResponse;
 import com.jaee.dto.common.PageResponse;
+import com.jaee.dto.common.SliceResponse;
+import com.jaee.dto.product.ProductBatchDto;
+import com.jaee.dto.product.ProductChangesDto;
 import com.jaee.dto.product.ProductDto;
+import com.jaee.dto.product.ProductFacetsDto;
+import com.jaee.dto.product.ProductSuggestionsDto;
+import com.jaee.service.ProductChangeService;
+import com.jaee.service.ProductRecommendationService;
 import com.jaee.service.ProductService;
+import com.jaee.service.ProductSuggestService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -20,6 +34,12 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductSuggestService productSuggestService;
+    private final ProductRecommendationService productRecommendationService;
+    private final ProductChangeService productChangeService;
+    private final CatalogVersion catalogVersion;
+    private final ProductPageCache productPageCache;
+    private final ProductStatsTracker productStatsTracker;
 
     @GetMapping
     @Operation(summary = "Get products with filters and pagination")
@@ -31,37 +51,133 @@ public class ProductController {
             @RequestParam(defaultValue = "newest") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "12") int size
+            @RequestParam(defaultValue = "12") int size,
+            WebRequest webRequest
     ) {
-        PageResponse<ProductDto> products = productService.getProducts(
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productService.getProducts(
                 categoryId, minPrice, maxPrice, search, sortBy, sortDir, page, size
-        );
-        return ResponseEntity.ok(ApiResponse.success(products));
+        )));
+    }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Get category counts, price histogram and in-stock count for the given filters")
+    public ResponseEntity<ApiResponse<ProductFacetsDto>> getFacets(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) String search,
+            WebRequest webRequest
+    ) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productService.getFacets(
+                categoryId, minPrice, maxPrice, search
+        )));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest products and categories by name prefix (typeahead)")
+    public ResponseEntity<ApiResponse<ProductSuggestionsDto>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit,
+            WebRequest webRequest
+    ) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productSuggestService.suggest(q, limit)));
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Get products with filters using cursor pagination (for infinite scroll)")
+    public ResponseEntity<ApiResponse<SliceResponse<ProductDto>>> scrollProducts(
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "newest") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            WebRequest webRequest
+    ) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productService.scrollProducts(
+                categoryId, minPrice, maxPrice, sortBy, sortDir, cursor, size
+        )));
+    }
+
+    @GetMapping("/batch")
+    @Operation(summary = "Get several products by id and/or slug in one call (cart, wishlist, recently viewed)")
+    public ResponseEntity<ApiResponse<ProductBatchDto>> getProductsBatch(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) List<String> slugs,
+            WebRequest webRequest
+    ) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productService.getProductsBatch(ids, slugs)));
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get products changed since a sync token (omit it for a full sync); pass nextToken back as since")
+    public ResponseEntity<ApiResponse<ProductChangesDto>> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "500") int limit
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(productChangeService.getChanges(since, limit)));
+    }
+
+    @GetMapping("/collections/{name}")
+    @Operation(summary = "Get a home-page collection (featured, on-sale, new-arrivals) using cursor pagination")
+    public ResponseEntity<ApiResponse<SliceResponse<ProductDto>>> getCollection(
+            @PathVariable String name,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "12") int size,
+            WebRequest webRequest
+    ) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productService.getCollection(name, cursor, size)));
     }
 
     @GetMapping("/{slug}")
     @Operation(summary = "Get product by slug")
-    public ResponseEntity<ApiResponse<ProductDto>> getProductBySlug(@PathVariable String slug) {
-        ProductDto product = productService.getProductBySlug(slug);
-        return ResponseEntity.ok(ApiResponse.success(product));
+    public ResponseEntity<byte[]> getProductBySlug(
+            @PathVariable String slug,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest
+    ) {
+        boolean gzip = productPageCache.isGzipEnabled() && ProductPageCache.acceptsGzip(acceptEncoding);
+        // Counted before the ETag check, so a revalidation answered with 304 is still a view
+        productStatsTracker.recordView(productPageCache.get(slug).getProductId());
+        return catalogVersion.respond(webRequest, gzip ? "gzip" : "json", ok -> {
+            // Served from pre-encoded bytes; the body is ApiResponse<ProductDto>. Looked up
+            // again after the version was read, so the body is never older than its tag
+            ProductPageCache.EncodedPage page = productPageCache.get(slug);
+            ok.contentType(MediaType.APPLICATION_JSON);
+            if (gzip) {
+                return ok.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(page.getGzipped());
+            }
+            return ok.body(page.getJson());
+        });
+    }
+
+    @GetMapping("/{slug}/related")
+    @Operation(summary = "Get products frequently bought together with this one")
+    public ResponseEntity<ApiResponse<List<ProductDto>>> getRelatedProducts(
+            @PathVariable String slug,
+            @RequestParam(defaultValue = "8") int limit,
+            WebRequest webRequest
+    ) {
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productRecommendationService.getRelated(slug, limit)));
     }
 
     @GetMapping("/featured")
     @Operation(summary = "Get featured products")
     public ResponseEntity<ApiResponse<List<ProductDto>>> getFeaturedProducts(
-            @RequestParam(defaultValue = "8") int limit
+            @RequestParam(defaultValue = "8") int limit,
+            WebRequest webRequest
     ) {
-        List<ProductDto> products = productService.getFeaturedProducts(limit);
-        return ResponseEntity.ok(ApiResponse.success(products));
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productService.getFeaturedProducts(limit)));
     }
 
     @GetMapping("/on-sale")
     @Operation(summary = "Get products currently on sale (with discount)")
     public ResponseEntity<ApiResponse<PageResponse<ProductDto>>> getOnSaleProducts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "12") int size
+            @RequestParam(defaultValue = "12") int size,
+            WebRequest webRequest
     ) {
-        PageResponse<ProductDto> products = productService.getOnSaleProducts(page, size);
-        return ResponseEntity.ok(ApiResponse.success(products));
+        return catalogVersion.respond(webRequest, () -> ApiResponse.success(productService.getOnSaleProducts(page, size)));
     }
 }
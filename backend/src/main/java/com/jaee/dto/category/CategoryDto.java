@@ -7,7 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CategoryDto {
@@ -18,14 +18,17 @@ public class CategoryDto {
     private String imageUrl;
     private Integer productCount;
     
-    public static CategoryDto fromEntity(Category category) {
+    /**
+     * @param productCount active products in the category
+     */
+    public static CategoryDto fromEntity(Category category, long productCount) {
         return CategoryDto.builder()
                 .id(category.getId())
                 .name(category.getName())
                 .slug(category.getSlug())
                 .description(category.getDescription())
                 .imageUrl(category.getImageUrl())
-                .productCount(category.getProducts() != null ? category.getProducts().size() : 0)
+                .productCount((int) productCount)
                 .build();
     }
 }
@@ -34,4 +34,21 @@ public class PageResponse<T> {
                 .last(page.isLast())
                 .build();
     }
+
+    /**
+     * Builds a page from an already-sliced result, with the same paging metadata
+     * Spring's {@link Page} would report.
+     */
+    public static <T> PageResponse<T> of(List<T> content, int page, int size, long totalElements) {
+        int totalPages = size == 0 ? 1 : (int) Math.ceil((double) totalElements / size);
+        return PageResponse.<T>builder()
+                .content(content)
+                .page(page)
+                .size(size)
+                .totalElements(totalElements)
+                .totalPages(totalPages)
+                .first(page == 0)
+                .last(page + 1 >= totalPages)
+                .build();
+    }
 }
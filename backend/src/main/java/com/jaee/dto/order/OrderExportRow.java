@@ -0,0 +1,43 @@
+package com.jaee.dto.order;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderExportRow {
+    private Long id;
+    private String status;
+    private Long userId;
+    private String customerEmail;
+    private String customerPhone;
+    private BigDecimal totalAmount;
+    private String currency;
+    private String razorpayOrderId;
+    private String razorpayPaymentId;
+    private LocalDateTime createdAt;
+    private LocalDateTime paidAt;
+    @Builder.Default
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long id;
+        private Long productId;
+        private String name;
+        private BigDecimal price;
+        private Integer qty;
+    }
+}
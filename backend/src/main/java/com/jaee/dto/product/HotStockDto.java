@@ -0,0 +1,16 @@
+package com.jaee.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotStockDto {
+    private Long productId;
+    private boolean hot;
+    private Integer remaining;
+}
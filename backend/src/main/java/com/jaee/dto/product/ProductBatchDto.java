@@ -0,0 +1,22 @@
+package com.jaee.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a multi-get: the products found, each once and in request order (ids first,
+ * then slugs), and the requested keys that matched no product.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchDto {
+    private List<ProductDto> products;
+    private List<Long> missingIds;
+    private List<String> missingSlugs;
+}
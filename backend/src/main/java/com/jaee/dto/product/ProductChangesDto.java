@@ -0,0 +1,24 @@
+package com.jaee.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Catalog delta since a sync token: products to upsert (current state) and ids to
+ * delete. Pass {@code nextToken} as {@code since} on the next call; keep paging while
+ * {@code hasMore} is true.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDto {
+    private List<ProductDto> upserts;
+    private List<Long> deleted;
+    private String nextToken;
+    private boolean hasMore;
+}
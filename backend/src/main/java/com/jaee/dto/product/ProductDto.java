@@ -1,6 +1,7 @@
 package com.jaee.dto.product;
 
 import com.jaee.entity.Product;
+import com.jaee.entity.ProductListing;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,10 +9,12 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ProductDto {
@@ -51,11 +54,34 @@ public class ProductDto {
                 .currency(product.getCurrency())
                 .categoryId(product.getCategory() != null ? product.getCategory().getId() : null)
                 .categoryName(product.getCategory() != null ? product.getCategory().getName() : null)
-                .images(product.getImages())
+                .images(new ArrayList<>(product.getImages()))
                 .stockQty(product.getStockQty())
                 .active(product.getActive())
                 .inStock(product.isInStock())
                 .createdAt(product.getCreatedAt())
                 .build();
     }
+
+    /**
+     * The same view of a product as {@link #fromEntity}, read from the listing read model.
+     */
+    public static ProductDto fromListing(ProductListing listing) {
+        return ProductDto.builder()
+                .id(listing.getProductId())
+                .name(listing.getName())
+                .slug(listing.getSlug())
+                .description(listing.getDescription())
+                .price(listing.getPrice())
+                .compareAtPrice(listing.getCompareAtPrice())
+                .discountPercent(listing.getDiscountPercent())
+                .currency(listing.getCurrency())
+                .categoryId(listing.getCategoryId())
+                .categoryName(listing.getCategoryName())
+                .images(listing.getImages() != null ? new ArrayList<>(Arrays.asList(listing.getImages())) : new ArrayList<>())
+                .stockQty(listing.getStockQty())
+                .active(true)
+                .inStock(listing.getInStock())
+                .createdAt(listing.getCreatedAt())
+                .build();
+    }
 }
@@ -0,0 +1,36 @@
+package com.jaee.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One product in an export. Field names match {@link ProductImportRow} so an export
+ * can be edited and imported back.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductExportRow {
+    private Long id;
+    private String name;
+    private String slug;
+    private String description;
+    private BigDecimal price;
+    private BigDecimal compareAtPrice;
+    private String currency;
+    private Long categoryId;
+    private String categorySlug;
+    private Integer stockQty;
+    private Boolean active;
+    @Builder.Default
+    private List<String> images = new ArrayList<>();
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,19 @@
+package com.jaee.dto.product;
+
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * One row of a bulk product import. Rows are matched to existing products by slug
+ * (derived from the name when omitted); the category may be given by id or slug.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ProductImportRow extends ProductCreateRequest {
+
+    @Size(max = 220, message = "Slug must not exceed 220 characters")
+    private String slug;
+
+    private String categorySlug;
+}
@@ -0,0 +1,38 @@
+package com.jaee.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionsDto {
+    private List<ProductSuggestion> products;
+    private List<CategorySuggestion> categories;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductSuggestion {
+        private Long id;
+        private String name;
+        private String slug;
+        private String imageUrl;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CategorySuggestion {
+        private Long id;
+        private String name;
+        private String slug;
+    }
+}
@@ -0,0 +1,27 @@
+package com.jaee.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product in flash-sale mode: its units are claimed from in-memory counters by
+ * {@code HotStockService} rather than by locking its {@code products} row.
+ */
+@Entity
+@Table(name = "hot_stock_products")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HotStockProduct {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Builder.Default
+    private LocalDateTime enabledAt = LocalDateTime.now();
+}
@@ -2,6 +2,8 @@ package com.jaee.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -9,6 +11,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 @Table(name = "products")
 @Getter
 @Setter
@@ -17,8 +21,10 @@ import java.util.List;
 @Builder
 public class Product {
 
+    // Pooled sequence (see V15) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_id_seq")
+    @SequenceGenerator(name = "products_id_seq", sequenceName = "products_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -44,6 +50,7 @@ public class Product {
     private Category category;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product-images")
     @CollectionTable(name = "product_images", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_url")
     @Builder.Default
@@ -61,12 +68,4 @@ public class Product {
     public boolean isInStock() {
         return stockQty != null && stockQty > 0;
     }
-
-    public void reduceStock(int quantity) {
-        if (this.stockQty >= quantity) {
-            this.stockQty -= quantity;
-        } else {
-            throw new IllegalStateException("Insufficient stock for product: " + name);
-        }
-    }
 }
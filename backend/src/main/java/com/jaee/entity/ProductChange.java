@@ -0,0 +1,42 @@
+package com.jaee.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the product change log. Written in bulk by {@code ProductChangeService};
+ * a product may appear many times, the entry latest in {@code (txid, seq)} order is current.
+ */
+@Entity
+@Table(name = "product_changes")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long seq;
+
+    // Id of the writing transaction, filled in by the database (see V25)
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long txid;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean deleted = false;
+
+    // ProductChangeService#origin() of the instance that wrote the entry (see V26)
+    @Column(length = 36, updatable = false)
+    private String origin;
+
+    @Builder.Default
+    private LocalDateTime changedAt = LocalDateTime.now();
+}
@@ -0,0 +1,65 @@
+package com.jaee.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Row of the flattened product listing read model: one per active product, with category
+ * name, images and discount already resolved. Written only by
+ * {@code ProductListingService}, read by the listing endpoints.
+ */
+@Entity
+@Immutable
+@Table(name = "product_listing")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductListing {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private String slug;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal price;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal compareAtPrice;
+
+    private Integer discountPercent;
+
+    private String currency;
+
+    private Long categoryId;
+
+    private String categoryName;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(nullable = false)
+    private String[] images;
+
+    @Column(nullable = false)
+    private Integer stockQty;
+
+    @Column(nullable = false)
+    private Boolean inStock;
+
+    private LocalDateTime createdAt;
+}
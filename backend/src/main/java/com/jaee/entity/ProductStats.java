@@ -0,0 +1,39 @@
+package com.jaee.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Accumulated view and add-to-cart counts for a product. Rows are written in batches by
+ * {@code ProductStatsTracker}, never on the request path.
+ */
+@Entity
+@Table(name = "product_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductStats {
+
+    /**
+     * Popularity is {@code views + ADD_TO_CART_WEIGHT * addToCarts}.
+     */
+    public static final int ADD_TO_CART_WEIGHT = 5;
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long views = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long addToCarts = 0L;
+
+    private LocalDateTime updatedAt;
+}
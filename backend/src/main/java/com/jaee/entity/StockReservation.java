@@ -0,0 +1,44 @@
+package com.jaee.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A hold on {@code qty} units of a product for a pending order, until {@code expiresAt}.
+ * Placed in bulk by {@code StockReservationService}. A {@code claimed} hold was taken from
+ * a hot product's in-memory counter; its units are already off stock.
+ */
+@Entity
+@Table(name = "stock_reservations")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer qty;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(nullable = false, columnDefinition = "BOOLEAN DEFAULT FALSE")
+    @Builder.Default
+    private Boolean claimed = false;
+
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,23 @@
+package com.jaee.event;
+
+import com.jaee.service.ProductChangeService;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Published by {@link com.jaee.catalog.CatalogChangeFeed} for catalog writes made by other
+ * instances, after they have committed. Only ids are carried: listeners read the current
+ * state from the database, so seeing a change twice is harmless. {@code categoriesChanged}
+ * is set when the category table differs from the last time the feed looked, and
+ * {@code upTo} is the change log position the event covers.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CatalogSyncEvent {
+
+    private final Set<Long> productIds;
+    private final boolean categoriesChanged;
+    private final ProductChangeService.Position upTo;
+}
@@ -0,0 +1,25 @@
+package com.jaee.event;
+
+import com.jaee.dto.category.CategoryDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Published by {@link com.jaee.service.CategoryService} for every category write.
+ * {@code before} is null for a new category and {@code after} is null for a deleted one.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CategoryChangedEvent {
+
+    private final CategoryDto before;
+    private final CategoryDto after;
+
+    public Long getCategoryId() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    public boolean isRename() {
+        return before != null && after != null && !before.getName().equals(after.getName());
+    }
+}
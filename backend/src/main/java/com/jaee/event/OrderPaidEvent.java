@@ -0,0 +1,31 @@
+package com.jaee.event;
+
+import com.jaee.entity.Order;
+import com.jaee.entity.OrderItem;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Published by {@link com.jaee.service.CheckoutService} when an order is marked paid.
+ * Maps product id to the quantity bought.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderPaidEvent {
+
+    private final Long orderId;
+    private final Map<Long, Integer> quantities;
+
+    public static OrderPaidEvent of(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct() != null) {
+                quantities.merge(item.getProduct().getId(), item.getQty(), Integer::sum);
+            }
+        }
+        return new OrderPaidEvent(order.getId(), quantities);
+    }
+}
@@ -0,0 +1,38 @@
+package com.jaee.event;
+
+import com.jaee.dto.product.ProductDto;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Published by {@link com.jaee.service.ProductService} for every product write.
+ * Each change carries the state before and after the write; {@code before} is null
+ * for a new product and {@code after} is null for a deleted one.
+ */
+@Getter
+@RequiredArgsConstructor
+public class ProductChangedEvent {
+
+    private final List<Change> changes;
+
+    public static ProductChangedEvent of(ProductDto before, ProductDto after) {
+        return new ProductChangedEvent(List.of(new Change(before, after)));
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Change {
+        private final ProductDto before;
+        private final ProductDto after;
+
+        public Long getProductId() {
+            return after != null ? after.getId() : before.getId();
+        }
+
+        public boolean isDelete() {
+            return after == null;
+        }
+    }
+}
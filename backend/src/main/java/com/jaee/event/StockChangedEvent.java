@@ -0,0 +1,17 @@
+package com.jaee.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Published when checkout changes stock levels. Maps product id to the change in
+ * stock quantity (negative for a decrement).
+ */
+@Getter
+@RequiredArgsConstructor
+public class StockChangedEvent {
+
+    private final Map<Long, Integer> deltas;
+}
@@ -0,0 +1,244 @@
+package com.jaee.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.ServletException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a request at most once per (user, endpoint, Idempotency-Key) and hands its response
+ * to every repeat. Keys live in {@code idempotency_keys}, with recently completed ones in
+ * an in-memory LRU so most repeats never reach the database. A repeat that arrives while
+ * the first request is still running on this instance waits for it; one running on
+ * another instance gets a 409.
+ * <p>
+ * Responses with a 5xx status are not kept, so a request that failed on our side can be
+ * retried with the same key; repeats that were waiting for it get the 409 asking them to.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    private static final String SELECT_SQL =
+            "SELECT request_hash, status_code, content_type, body, completed_at "
+            + "FROM idempotency_keys WHERE key_hash = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO idempotency_keys (key_hash, request_hash, created_at) VALUES (?, ?, ?)";
+    private static final String TAKE_OVER_SQL =
+            "UPDATE idempotency_keys SET request_hash = ?, created_at = ? "
+            + "WHERE key_hash = ? AND completed_at IS NULL AND created_at < ?";
+    private static final String COMPLETE_SQL =
+            "UPDATE idempotency_keys SET status_code = ?, content_type = ?, body = ?, completed_at = ? WHERE key_hash = ?";
+    private static final String DELETE_SQL = "DELETE FROM idempotency_keys WHERE key_hash = ?";
+    private static final String CLEANUP_SQL = "DELETE FROM idempotency_keys WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final Duration lockTimeout;
+
+    private final Cache<String, Entry> completed;
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(
+            DataSource dataSource,
+            @Value("${app.idempotency.ttl:24h}") Duration ttl,
+            @Value("${app.idempotency.wait-timeout:30s}") Duration waitTimeout,
+            @Value("${app.idempotency.lock-timeout:2m}") Duration lockTimeout,
+            @Value("${app.idempotency.cache-size:10000}") long cacheSize
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.lockTimeout = lockTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Runs {@code handler} unless this key has been seen before, in which case the first
+     * response is returned instead.
+     *
+     * @throws Conflict when the key belongs to a different request body, or its first
+     *         request is still running elsewhere or failed while this one waited
+     */
+    public Outcome execute(Long userId, String endpoint, String key, byte[] requestBody, Handler handler)
+            throws IOException, ServletException {
+        byte[] keyHash = sha256((userId + "\n" + endpoint + "\n" + key).getBytes(StandardCharsets.UTF_8));
+        byte[] requestHash = sha256(requestBody);
+        String id = HexFormat.of().formatHex(keyHash);
+
+        Entry done = completed.getIfPresent(id);
+        if (done != null) {
+            return replay(done, requestHash);
+        }
+
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return replay(await(running), requestHash);
+        }
+
+        try {
+            Entry previous = claim(keyHash, requestHash);
+            if (previous != null) {
+                completed.put(id, previous);
+                mine.complete(previous);
+                return replay(previous, requestHash);
+            }
+
+            StoredResponse response;
+            try {
+                response = handler.run();
+            } catch (IOException | ServletException | RuntimeException e) {
+                jdbcTemplate.update(DELETE_SQL, (Object) keyHash);
+                throw e;
+            }
+
+            if (response.status() >= 500) {
+                jdbcTemplate.update(DELETE_SQL, (Object) keyHash);
+                // Not kept, so repeats waiting on it are told to retry rather than handed the failure
+                mine.completeExceptionally(new IllegalStateException("Request failed with status " + response.status()));
+                return new Outcome(response, false);
+            }
+
+            Entry entry = new Entry(requestHash, response);
+            completed.put(id, entry);
+            try {
+                jdbcTemplate.update(COMPLETE_SQL, response.status(), response.contentType(), response.body(),
+                        Timestamp.valueOf(LocalDateTime.now()), keyHash);
+            } catch (DataAccessException e) {
+                // The request itself succeeded; repeats are still answered from memory
+                log.warn("Failed to store response for idempotency key {}: {}", id, e.getMessage());
+            }
+            mine.complete(entry);
+            return new Outcome(response, false);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    @Scheduled(cron = "${app.idempotency.cleanup-cron:0 15 * * * *}")
+    public void cleanup() {
+        int removed = jdbcTemplate.update(CLEANUP_SQL, Timestamp.valueOf(LocalDateTime.now().minus(ttl)));
+        if (removed > 0) {
+            log.info("Removed {} expired idempotency keys", removed);
+        }
+    }
+
+    /**
+     * Marks the key as in progress for this request, or returns the stored entry when a
+     * previous request with it has completed.
+     */
+    private Entry claim(byte[] keyHash, byte[] requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            jdbcTemplate.update(INSERT_SQL, keyHash, requestHash, Timestamp.valueOf(now));
+            return null;
+        } catch (DuplicateKeyException e) {
+            // Seen before; fall through to the stored row
+        }
+
+        Row row = jdbcTemplate.query(SELECT_SQL, rs -> rs.next()
+                ? new Row(rs.getBytes(1), rs.getInt(2), rs.getString(3), rs.getBytes(4), rs.getTimestamp(5) != null)
+                : null, (Object) keyHash);
+        if (row != null && row.completed()) {
+            return new Entry(row.requestHash(), new StoredResponse(row.status(), row.contentType(), row.body()));
+        }
+        // Unfinished for longer than any request takes: its instance died, so start over
+        Timestamp stale = Timestamp.valueOf(now.minus(lockTimeout));
+        if (row != null && jdbcTemplate.update(TAKE_OVER_SQL, requestHash, Timestamp.valueOf(now), keyHash, stale) == 1) {
+            return null;
+        }
+        throw new Conflict(HttpStatus.CONFLICT, "A request with this Idempotency-Key is already in progress");
+    }
+
+    private Entry await(CompletableFuture<Entry> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new Conflict(HttpStatus.CONFLICT, "A request with this Idempotency-Key is already in progress");
+        } catch (ExecutionException e) {
+            throw new Conflict(HttpStatus.CONFLICT, "The original request with this Idempotency-Key failed, please retry");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Conflict(HttpStatus.CONFLICT, "A request with this Idempotency-Key is already in progress");
+        }
+    }
+
+    private static Outcome replay(Entry entry, byte[] requestHash) {
+        if (!Arrays.equals(entry.requestHash(), requestHash)) {
+            throw new Conflict(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "This Idempotency-Key was already used for a different request");
+        }
+        return new Outcome(entry.response(), true);
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+        StoredResponse run() throws IOException, ServletException;
+    }
+
+    /**
+     * A response exactly as first sent: status, content type and body bytes.
+     */
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    public record Outcome(StoredResponse response, boolean replayed) {
+    }
+
+    @Getter
+    public static class Conflict extends RuntimeException {
+        private final HttpStatus status;
+
+        public Conflict(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private record Entry(byte[] requestHash, StoredResponse response) {
+    }
+
+    private record Row(byte[] requestHash, int status, String contentType, byte[] body, boolean completed) {
+    }
+}
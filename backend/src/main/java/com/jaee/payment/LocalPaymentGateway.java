@@ -0,0 +1,50 @@
+package com.jaee.payment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Stand-in for Razorpay in test mode: hands out {@code test_order_*} ids without a network
+ * call, after an optional simulated latency ({@code app.razorpay.local.latency}) for
+ * exercising timeouts and pool behaviour against a slow gateway.
+ */
+@Component
+@ConditionalOnProperty(name = "app.razorpay.test-mode", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class LocalPaymentGateway implements PaymentGateway {
+
+    private final Duration latency;
+
+    public LocalPaymentGateway(@Value("${app.razorpay.local.latency:0ms}") Duration latency) {
+        this.latency = latency;
+        log.info("Razorpay TEST MODE enabled - payments will be simulated");
+    }
+
+    @Override
+    public String createOrder(Long orderId, long amountInPaise, String currency, Map<String, String> notes) {
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while simulating gateway latency", e);
+            }
+        }
+        return "test_order_" + orderId + "_" + System.currentTimeMillis();
+    }
+
+    @Override
+    public String keyId() {
+        return "test_key";
+    }
+
+    @Override
+    public boolean isTestMode() {
+        return true;
+    }
+}
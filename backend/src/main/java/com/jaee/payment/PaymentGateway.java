@@ -0,0 +1,26 @@
+package com.jaee.payment;
+
+import com.razorpay.RazorpayException;
+
+import java.util.Map;
+
+/**
+ * Creates orders at the payment gateway. {@link RazorpayGateway} calls Razorpay; with
+ * {@code app.razorpay.test-mode} on, {@link LocalPaymentGateway} stands in for it.
+ * Implementations block on the network; callers go through {@link PaymentGatewayClient}.
+ */
+public interface PaymentGateway {
+
+    /**
+     * @return the gateway's id for the new order
+     */
+    String createOrder(Long orderId, long amountInPaise, String currency, Map<String, String> notes)
+            throws RazorpayException;
+
+    /**
+     * Public key the frontend checkout widget is opened with.
+     */
+    String keyId();
+
+    boolean isTestMode();
+}
@@ -0,0 +1,133 @@
+package com.jaee.payment;
+
+import com.jaee.exception.BadRequestException;
+import com.jaee.exception.ServiceUnavailableException;
+import com.razorpay.RazorpayException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Calls the {@link PaymentGateway} on a small bounded pool, with a timeout per attempt and
+ * a limited number of retries for timeouts, network errors and gateway-side errors; a
+ * request the gateway rejects is not sent again. Callers must not have a transaction open: a slow gateway
+ * then ties up gateway threads, never database connections. When every thread is busy and
+ * the queue is full, the call is turned away at once instead of piling up.
+ * <p>
+ * A retried order creation can leave an extra, never-paid order at the gateway, which
+ * expires there on its own.
+ */
+@Component
+@Slf4j
+public class PaymentGatewayClient {
+
+    private final PaymentGateway gateway;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+
+    public PaymentGatewayClient(
+            PaymentGateway gateway,
+            @Value("${app.razorpay.gateway.threads:4}") int threads,
+            @Value("${app.razorpay.gateway.queue-capacity:16}") int queueCapacity,
+            @Value("${app.razorpay.gateway.timeout:10s}") Duration timeout,
+            @Value("${app.razorpay.gateway.max-attempts:2}") int maxAttempts,
+            @Value("${app.razorpay.gateway.retry-backoff:500ms}") Duration retryBackoff
+    ) {
+        this.gateway = gateway;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().daemon().name("payment-gateway-", 0).factory());
+        this.timeout = timeout;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoff = retryBackoff;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public String keyId() {
+        return gateway.keyId();
+    }
+
+    public boolean isTestMode() {
+        return gateway.isTestMode();
+    }
+
+    /**
+     * Creates the gateway order for one of our orders.
+     *
+     * @throws ServiceUnavailableException when the gateway is saturated, or still failing
+     *         or timing out after the last attempt
+     * @throws BadRequestException when the gateway rejects the order
+     */
+    public String createOrder(Long orderId, long amountInPaise, String currency, Map<String, String> notes) {
+        for (int attempt = 1; ; attempt++) {
+            Future<String> call;
+            try {
+                call = executor.submit(() -> gateway.createOrder(orderId, amountInPaise, currency, notes));
+            } catch (RejectedExecutionException e) {
+                log.warn("Payment gateway saturated, turning away order {}", orderId);
+                throw new ServiceUnavailableException("Payment service is busy, please try again");
+            }
+
+            String failure;
+            try {
+                return call.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                call.cancel(true);
+                failure = "timed out after " + timeout;
+            } catch (ExecutionException e) {
+                if (!isRetryable(e.getCause())) {
+                    log.error("Payment gateway rejected order {}: {}", orderId, e.getCause().getMessage());
+                    throw new BadRequestException("Payment could not be started for this order");
+                }
+                failure = e.getCause().getMessage();
+            } catch (InterruptedException e) {
+                call.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Payment service is unavailable, please try again");
+            }
+
+            if (attempt >= maxAttempts) {
+                log.error("Creating gateway order for order {} failed after {} attempts: {}", orderId, attempt, failure);
+                throw new ServiceUnavailableException("Payment service is unavailable, please try again");
+            }
+            log.warn("Creating gateway order for order {} failed (attempt {}), retrying: {}", orderId, attempt, failure);
+            try {
+                Thread.sleep(retryBackoff.toMillis() * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceUnavailableException("Payment service is unavailable, please try again");
+            }
+        }
+    }
+
+    /**
+     * Razorpay reports API errors as {@code <code>:<description>}, with every 4xx under
+     * {@code BAD_REQUEST_ERROR}; sending the same request again would only be rejected again.
+     */
+    private static boolean isRetryable(Throwable failure) {
+        if (failure instanceof RazorpayException) {
+            String message = failure.getMessage();
+            return message == null || !message.startsWith("BAD_REQUEST_ERROR");
+        }
+        return failure instanceof IOException || failure instanceof UncheckedIOException;
+    }
+}
@@ -0,0 +1,59 @@
+package com.jaee.payment;
+
+import com.razorpay.RazorpayClient;
+import com.razorpay.RazorpayException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "app.razorpay.test-mode", havingValue = "false")
+@Slf4j
+public class RazorpayGateway implements PaymentGateway {
+
+    @Value("${app.razorpay.key-id}")
+    private String razorpayKeyId;
+
+    @Value("${app.razorpay.key-secret}")
+    private String razorpayKeySecret;
+
+    private RazorpayClient razorpayClient;
+
+    @PostConstruct
+    public void init() {
+        try {
+            razorpayClient = new RazorpayClient(razorpayKeyId, razorpayKeySecret);
+            log.info("Razorpay client initialized");
+        } catch (RazorpayException e) {
+            log.error("Failed to initialize Razorpay client: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String createOrder(Long orderId, long amountInPaise, String currency, Map<String, String> notes)
+            throws RazorpayException {
+        JSONObject orderRequest = new JSONObject();
+        orderRequest.put("amount", amountInPaise);
+        orderRequest.put("currency", currency);
+        orderRequest.put("receipt", "order_" + orderId);
+        orderRequest.put("notes", new JSONObject(notes));
+
+        com.razorpay.Order razorpayOrder = razorpayClient.orders.create(orderRequest);
+        return razorpayOrder.get("id");
+    }
+
+    @Override
+    public String keyId() {
+        return razorpayKeyId;
+    }
+
+    @Override
+    public boolean isTestMode() {
+        return false;
+    }
+}
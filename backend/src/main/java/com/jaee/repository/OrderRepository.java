@@ -2,23 +2,64 @@ package com.jaee.repository;
 
 import com.jaee.entity.Order;
 import com.jaee.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUserOrderByCreatedAtDesc(User user, Pageable pageable);
+
+    @Query("SELECT o FROM Order o WHERE o.user = :user ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findLatestByUser(@Param("user") User user, Limit limit);
+
+    /**
+     * Keyset page of order history: orders strictly older than (createdAt, id).
+     */
+    @Query("SELECT o FROM Order o WHERE o.user = :user AND o.createdAt <= :createdAt " +
+           "AND (o.createdAt < :createdAt OR o.id < :id) ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByUserBefore(
+        @Param("user") User user,
+        @Param("createdAt") LocalDateTime createdAt,
+        @Param("id") Long id,
+        Limit limit
+    );
     
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id = :id AND o.user = :user")
     Optional<Order> findByIdAndUserWithItems(@Param("id") Long id, @Param("user") User user);
     
+    /**
+     * Locks the order until the caller's transaction ends, so the payment callback and the
+     * payment webhook take turns and only the first one moves it out of PENDING.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Order> findByRazorpayOrderId(String razorpayOrderId);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.razorpayOrderId = :razorpayOrderId " +
+           "WHERE o.id = :id AND o.status = com.jaee.entity.Order.OrderStatus.PENDING")
+    int attachRazorpayOrderId(@Param("id") Long id, @Param("razorpayOrderId") String razorpayOrderId);
+
+    @Query("SELECT i.product.id AS productId, SUM(i.qty) AS units FROM Order o JOIN o.items i " +
+           "WHERE o.status IN :statuses AND i.product IS NOT NULL GROUP BY i.product.id")
+    List<ProductUnits> sumUnitsByProduct(@Param("statuses") Collection<Order.OrderStatus> statuses);
+
+    interface ProductUnits {
+        Long getProductId();
+        Long getUnits();
+    }
     
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.items WHERE o.razorpayOrderId = :orderId")
     Optional<Order> findByRazorpayOrderIdWithItems(@Param("orderId") String orderId);
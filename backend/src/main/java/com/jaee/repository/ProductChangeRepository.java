@@ -0,0 +1,30 @@
+package com.jaee.repository;
+
+import com.jaee.entity.ProductChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    /**
+     * Entries after the position (txid, seq) in that order, written by transactions below
+     * {@code watermark}.
+     */
+    @Query("SELECT c FROM ProductChange c WHERE (c.txid > :txid OR (c.txid = :txid AND c.seq > :seq)) " +
+           "AND c.txid < :watermark ORDER BY c.txid, c.seq")
+    List<ProductChange> findAfter(
+        @Param("txid") long txid,
+        @Param("seq") long seq,
+        @Param("watermark") long watermark,
+        Limit limit
+    );
+
+    Optional<ProductChange> findFirstByOrderByTxidDescSeqDesc();
+}
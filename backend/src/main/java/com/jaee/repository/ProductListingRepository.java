@@ -0,0 +1,37 @@
+package com.jaee.repository;
+
+import com.jaee.entity.ProductListing;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Reads of the product listing read model (see V18 migration). Every row is an active
+ * product, so no joins or activity filter are needed.
+ */
+@Repository
+public interface ProductListingRepository extends JpaRepository<ProductListing, Long> {
+
+    @Query("SELECT l FROM ProductListing l WHERE " +
+           "(:categoryId IS NULL OR l.categoryId = :categoryId) AND " +
+           "(:minPrice IS NULL OR l.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR l.price <= :maxPrice)")
+    Page<ProductListing> findWithFilters(
+        @Param("categoryId") Long categoryId,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        Pageable pageable
+    );
+
+    @Query("SELECT l FROM ProductListing l ORDER BY l.createdAt DESC, l.productId DESC")
+    List<ProductListing> findNewest(Pageable pageable);
+
+    @Query("SELECT l FROM ProductListing l WHERE l.discountPercent IS NOT NULL")
+    Page<ProductListing> findOnSale(Pageable pageable);
+}
@@ -1,22 +1,51 @@
 package com.jaee.repository;
 
 import com.jaee.entity.Product;
+import com.jaee.entity.ProductStats;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
     Optional<Product> findBySlug(String slug);
     
     boolean existsBySlug(String slug);
+
+    boolean existsByCategoryId(Long categoryId);
+
+    long countByCategoryIdAndActiveTrue(Long categoryId);
+
+    @Query("SELECT p.category.id AS categoryId, COUNT(p) AS products FROM Product p " +
+           "WHERE p.active = true AND p.category IS NOT NULL GROUP BY p.category.id")
+    List<CategoryCount> countActiveByCategory();
+
+    interface CategoryCount {
+        Long getCategoryId();
+        Long getProducts();
+    }
+
+    /**
+     * Current stock of the given products, read as plain values so that no entity
+     * already held by the caller's persistence context can answer in its place.
+     */
+    @Query("SELECT p.id AS productId, p.stockQty AS stockQty FROM Product p WHERE p.id IN :ids")
+    List<StockLevel> findStockLevels(@Param("ids") Collection<Long> ids);
+
+    interface StockLevel {
+        Long getProductId();
+        Integer getStockQty();
+    }
     
     @Query("SELECT p FROM Product p WHERE p.active = true")
     Page<Product> findAllActive(Pageable pageable);
@@ -24,28 +53,150 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     @Query("SELECT p FROM Product p WHERE p.active = true AND p.category.id = :categoryId")
     Page<Product> findAllActiveByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
     
-    @Query("SELECT p FROM Product p WHERE p.active = true AND " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Product> searchProducts(@Param("search") String search, Pageable pageable);
+    /**
+     * Loads products with their category and images in one round-trip. Listing queries
+     * below only select ids; this hydrates the page so mapping to DTOs triggers no lazy loads.
+     * Result order is unspecified.
+     */
+    @EntityGraph(attributePaths = {"category", "images"})
+    @Query("SELECT DISTINCT p FROM Product p WHERE p.id IN :ids")
+    List<Product> findAllWithDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Products with the given slugs, with category and images loaded. Used by the bulk
+     * import to resolve a whole chunk of rows in one query.
+     */
+    @EntityGraph(attributePaths = {"category", "images"})
+    List<Product> findAllBySlugIn(Collection<String> slugs);
+
+    /**
+     * Full-text search over the weighted search_vector column (see V13 migration).
+     * Ordered by relevance unless sortBy is "price" or "name".
+     */
+    @Query(value = "SELECT p.id FROM products p WHERE p.active = true " +
+           "AND p.search_vector @@ to_tsquery('english', :query) " +
+           "AND (CAST(:categoryId AS BIGINT) IS NULL OR p.category_id = :categoryId) " +
+           "AND (CAST(:minPrice AS NUMERIC) IS NULL OR p.price >= :minPrice) " +
+           "AND (CAST(:maxPrice AS NUMERIC) IS NULL OR p.price <= :maxPrice) " +
+           "ORDER BY " +
+           "CASE WHEN :sortBy = 'price' AND :sortDir = 'asc' THEN p.price END ASC, " +
+           "CASE WHEN :sortBy = 'price' AND :sortDir = 'desc' THEN p.price END DESC, " +
+           "CASE WHEN :sortBy = 'name' AND :sortDir = 'asc' THEN p.name END ASC, " +
+           "CASE WHEN :sortBy = 'name' AND :sortDir = 'desc' THEN p.name END DESC, " +
+           "ts_rank(p.search_vector, to_tsquery('english', :query)) DESC, p.created_at DESC, p.id DESC",
+           countQuery = "SELECT COUNT(*) FROM products p WHERE p.active = true " +
+           "AND p.search_vector @@ to_tsquery('english', :query) " +
+           "AND (CAST(:categoryId AS BIGINT) IS NULL OR p.category_id = :categoryId) " +
+           "AND (CAST(:minPrice AS NUMERIC) IS NULL OR p.price >= :minPrice) " +
+           "AND (CAST(:maxPrice AS NUMERIC) IS NULL OR p.price <= :maxPrice)",
+           nativeQuery = true)
+    Page<Long> searchProductIds(
+        @Param("query") String query,
+        @Param("categoryId") Long categoryId,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        @Param("sortBy") String sortBy,
+        @Param("sortDir") String sortDir,
+        Pageable pageable
+    );
     
-    @Query("SELECT p FROM Product p WHERE p.active = true AND " +
+    @Query(value = "SELECT p.id FROM products p WHERE p.active = true " +
+           "AND p.search_vector @@ to_tsquery('english', :query)",
+           nativeQuery = true)
+    List<Long> findIdsMatchingSearch(@Param("query") String query);
+
+    /**
+     * Active products counted per category and facet price bucket, for facets without
+     * the catalog snapshot. The bucket edges are those of {@code CatalogSnapshot}.
+     */
+    @Query("SELECT c.id AS categoryId, c.name AS categoryName, " +
+           "CASE WHEN p.price < 500 THEN 0 WHEN p.price < 1000 THEN 1 WHEN p.price < 1500 THEN 2 " +
+           "WHEN p.price < 2000 THEN 3 WHEN p.price < 3000 THEN 4 ELSE 5 END AS priceBucket, " +
+           "COUNT(p) AS products, " +
+           "SUM(CASE WHEN (:minPrice IS NULL OR p.price >= :minPrice) AND (:maxPrice IS NULL OR p.price <= :maxPrice) " +
+           "THEN 1 ELSE 0 END) AS inPriceRange, " +
+           "SUM(CASE WHEN p.stockQty > 0 AND (:minPrice IS NULL OR p.price >= :minPrice) " +
+           "AND (:maxPrice IS NULL OR p.price <= :maxPrice) THEN 1 ELSE 0 END) AS inStockInPriceRange " +
+           "FROM Product p LEFT JOIN p.category c WHERE p.active = true " +
+           "GROUP BY c.id, c.name, " +
+           "CASE WHEN p.price < 500 THEN 0 WHEN p.price < 1000 THEN 1 WHEN p.price < 1500 THEN 2 " +
+           "WHEN p.price < 2000 THEN 3 WHEN p.price < 3000 THEN 4 ELSE 5 END")
+    List<FacetCount> countFacets(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
+
+    /**
+     * Same as {@link #countFacets}, counting only products that match the search. Every
+     * active product's category is still listed.
+     */
+    @Query(value = "SELECT c.id AS categoryId, c.name AS categoryName, " +
+           "CASE WHEN p.price < 500 THEN 0 WHEN p.price < 1000 THEN 1 WHEN p.price < 1500 THEN 2 " +
+           "WHEN p.price < 2000 THEN 3 WHEN p.price < 3000 THEN 4 ELSE 5 END AS priceBucket, " +
+           "SUM(CASE WHEN p.search_vector @@ to_tsquery('english', :query) THEN 1 ELSE 0 END) AS products, " +
+           "SUM(CASE WHEN p.search_vector @@ to_tsquery('english', :query) " +
+           "AND (CAST(:minPrice AS NUMERIC) IS NULL OR p.price >= :minPrice) " +
+           "AND (CAST(:maxPrice AS NUMERIC) IS NULL OR p.price <= :maxPrice) THEN 1 ELSE 0 END) AS inPriceRange, " +
+           "SUM(CASE WHEN p.search_vector @@ to_tsquery('english', :query) AND COALESCE(p.stock_qty, 0) > 0 " +
+           "AND (CAST(:minPrice AS NUMERIC) IS NULL OR p.price >= :minPrice) " +
+           "AND (CAST(:maxPrice AS NUMERIC) IS NULL OR p.price <= :maxPrice) THEN 1 ELSE 0 END) AS inStockInPriceRange " +
+           "FROM products p LEFT JOIN categories c ON c.id = p.category_id WHERE p.active = true " +
+           "GROUP BY 1, 2, 3",
+           nativeQuery = true)
+    List<FacetCount> countFacetsMatchingSearch(
+        @Param("query") String query,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice
+    );
+
+    interface FacetCount {
+        Long getCategoryId();
+        String getCategoryName();
+        Integer getPriceBucket();
+        Long getProducts();
+        Long getInPriceRange();
+        Long getInStockInPriceRange();
+    }
+
+    @Query("SELECT p.id FROM Product p WHERE p.active = true AND " +
            "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
-           "(:search IS NULL OR :search = '' OR LOWER(COALESCE(p.name, '')) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-           "LOWER(COALESCE(p.description, '')) LIKE LOWER(CONCAT('%', :search, '%')))")
-    Page<Product> findWithFilters(
+           "(:maxPrice IS NULL OR p.price <= :maxPrice)")
+    Page<Long> findIdsWithFilters(
         @Param("categoryId") Long categoryId,
         @Param("minPrice") BigDecimal minPrice,
         @Param("maxPrice") BigDecimal maxPrice,
-        @Param("search") String search,
         Pageable pageable
     );
     
-    @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.createdAt DESC")
-    List<Product> findFeaturedProducts(Pageable pageable);
+    /**
+     * Listing ordered by popularity (see {@link ProductStats#ADD_TO_CART_WEIGHT}), ties broken by id
+     * in the same direction. Products without stats count as 0.
+     */
+    @Query(value = "SELECT p.id FROM Product p LEFT JOIN ProductStats s ON s.productId = p.id " +
+           "WHERE p.active = true AND " +
+           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice) " +
+           "ORDER BY " +
+           "CASE WHEN :descending = true THEN COALESCE(s.views, 0) + " + ProductStats.ADD_TO_CART_WEIGHT + " * COALESCE(s.addToCarts, 0) END DESC, " +
+           "CASE WHEN :descending = true THEN p.id END DESC, " +
+           "COALESCE(s.views, 0) + " + ProductStats.ADD_TO_CART_WEIGHT + " * COALESCE(s.addToCarts, 0) ASC, p.id ASC",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.active = true AND " +
+           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.price <= :maxPrice)")
+    Page<Long> findIdsByPopularity(
+        @Param("categoryId") Long categoryId,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice,
+        @Param("descending") boolean descending,
+        Pageable pageable
+    );
+
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.category LEFT JOIN FETCH p.images WHERE p.active = true")
+    List<Product> findAllActiveWithDetails();
+
+    @Query("SELECT p.id FROM Product p WHERE p.active = true ORDER BY p.createdAt DESC, p.id DESC")
+    List<Long> findFeaturedProductIds(Pageable pageable);
 
-    @Query("SELECT p FROM Product p WHERE p.active = true AND p.compareAtPrice IS NOT NULL AND p.compareAtPrice > p.price")
-    Page<Product> findOnSaleProducts(Pageable pageable);
+    @Query("SELECT p.id FROM Product p WHERE p.active = true AND p.compareAtPrice IS NOT NULL AND p.compareAtPrice > p.price")
+    Page<Long> findOnSaleProductIds(Pageable pageable);
 }
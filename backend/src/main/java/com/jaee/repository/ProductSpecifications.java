@@ -0,0 +1,71 @@
+package com.jaee.repository;
+
+import com.jaee.entity.Product;
+import com.jaee.util.PageCursor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ProductSpecifications {
+
+    /**
+     * Active products matching the listing filters, optionally positioned strictly
+     * after a keyset cursor. The redundant {@code key >= value} bound lets Postgres
+     * range-scan the (key, id) index instead of filtering the OR.
+     */
+    public static Specification<Product> activeWithFilters(Long categoryId, BigDecimal minPrice,
+                                                           BigDecimal maxPrice, PageCursor after) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isTrue(root.get("active")));
+            if (categoryId != null) {
+                predicates.add(cb.equal(root.get("category").get("id"), categoryId));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("price"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("price"), maxPrice));
+            }
+            if (after != null) {
+                Path<Long> id = root.get("id");
+                predicates.add(switch (after.getSortField()) {
+                    case "price" -> seek(cb, root.get("price"), after.decimalValue(), id, after);
+                    case "name" -> seek(cb, root.get("name"), after.getValue(), id, after);
+                    default -> seek(cb, root.get("createdAt"), after.dateTimeValue(), id, after);
+                });
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Products whose compare-at price is above the price.
+     */
+    public static Specification<Product> onSale() {
+        return (root, query, cb) -> cb.and(
+                cb.isNotNull(root.get("compareAtPrice")),
+                cb.greaterThan(root.get("compareAtPrice"), root.<BigDecimal>get("price")));
+    }
+
+    private static <T extends Comparable<? super T>> Predicate seek(
+            CriteriaBuilder cb, Path<T> key, T value, Path<Long> id, PageCursor after) {
+        if (after.isDescending()) {
+            return cb.and(
+                    cb.lessThanOrEqualTo(key, value),
+                    cb.or(cb.lessThan(key, value), cb.lessThan(id, after.getId())));
+        }
+        return cb.and(
+                cb.greaterThanOrEqualTo(key, value),
+                cb.or(cb.greaterThan(key, value), cb.greaterThan(id, after.getId())));
+    }
+
+    private ProductSpecifications() {
+        // Utility class
+    }
+}
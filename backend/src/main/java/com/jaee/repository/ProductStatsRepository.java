@@ -0,0 +1,9 @@
+package com.jaee.repository;
+
+import com.jaee.entity.ProductStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductStatsRepository extends JpaRepository<ProductStats, Long> {
+}
@@ -0,0 +1,45 @@
+package com.jaee.repository;
+
+import com.jaee.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<StockReservation> findByOrderId(Long orderId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.claimed = true AND r.expiresAt <= :now")
+    List<StockReservation> findExpiredClaimed(@Param("now") LocalDateTime now);
+
+    @Query("SELECT r.productId AS productId, SUM(r.qty) AS units FROM StockReservation r " +
+           "WHERE r.expiresAt > :now AND r.claimed = false GROUP BY r.productId")
+    List<ProductUnits> sumActiveByProduct(@Param("now") LocalDateTime now);
+
+    @Query("SELECT COALESCE(SUM(r.qty), 0) FROM StockReservation r " +
+           "WHERE r.productId = :productId AND r.expiresAt > :now AND r.claimed = false")
+    long sumActive(@Param("productId") Long productId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.orderId = :orderId")
+    int deleteByOrderId(@Param("orderId") Long orderId);
+
+    @Modifying
+    @Query("DELETE FROM StockReservation r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    interface ProductUnits {
+        Long getProductId();
+        Long getUnits();
+    }
+}
@@ -1,5 +1,6 @@
 package com.jaee.service;
 
+import com.jaee.catalog.ProductStatsTracker;
 import com.jaee.dto.cart.AddToCartRequest;
 import com.jaee.dto.cart.CartDto;
 import com.jaee.dto.cart.MergeCartRequest;
@@ -28,6 +29,8 @@ public class CartService {
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final ProductRepository productRepository;
+    private final ProductStatsTracker productStatsTracker;
+    private final StockReservationService stockReservationService;
 
     @Transactional(readOnly = true)
     public CartDto getCart(User user) {
@@ -45,8 +48,10 @@ public class CartService {
             throw new BadRequestException("Product is not available");
         }
 
-        if (product.getStockQty() < request.getQty()) {
-            throw new BadRequestException("Insufficient stock. Available: " + product.getStockQty());
+        // Stock held by other shoppers' pending checkouts is not available
+        int available = stockReservationService.available(product);
+        if (available < request.getQty()) {
+            throw new BadRequestException("Insufficient stock. Available: " + available);
         }
 
         // Check if item already in cart
@@ -55,8 +60,8 @@ public class CartService {
 
         if (existingItem != null) {
             int newQty = existingItem.getQty() + request.getQty();
-            if (product.getStockQty() < newQty) {
-                throw new BadRequestException("Insufficient stock. Available: " + product.getStockQty());
+            if (available < newQty) {
+                throw new BadRequestException("Insufficient stock. Available: " + available);
             }
             existingItem.setQty(newQty);
             cartItemRepository.save(existingItem);
@@ -71,6 +76,7 @@ public class CartService {
             cartItemRepository.save(newItem);
         }
 
+        productStatsTracker.recordAddToCart(product.getId());
         log.info("Added {} x {} to cart for user {}", request.getQty(), product.getName(), user.getId());
         return CartDto.fromEntity(cart);
     }
@@ -88,8 +94,9 @@ public class CartService {
             cart.removeItem(item);
             cartItemRepository.delete(item);
         } else {
-            if (item.getProduct().getStockQty() < request.getQty()) {
-                throw new BadRequestException("Insufficient stock. Available: " + item.getProduct().getStockQty());
+            int available = stockReservationService.available(item.getProduct());
+            if (available < request.getQty()) {
+                throw new BadRequestException("Insufficient stock. Available: " + available);
             }
             item.setQty(request.getQty());
             cartItemRepository.save(item);
@@ -128,11 +135,12 @@ public class CartService {
             CartItem existingItem = cartItemRepository.findByCartAndProduct(cart, product)
                     .orElse(null);
 
-            int qtyToAdd = Math.min(guestItem.getQty(), product.getStockQty());
+            int available = stockReservationService.available(product);
+            int qtyToAdd = Math.min(guestItem.getQty(), available);
             if (qtyToAdd <= 0) continue;
 
             if (existingItem != null) {
-                int newQty = Math.min(existingItem.getQty() + qtyToAdd, product.getStockQty());
+                int newQty = Math.min(existingItem.getQty() + qtyToAdd, available);
                 existingItem.setQty(newQty);
                 cartItemRepository.save(existingItem);
             } else {
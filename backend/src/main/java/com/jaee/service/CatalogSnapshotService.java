@@ -0,0 +1,136 @@
+package com.jaee.service;
+
+import com.jaee.catalog.CatalogSnapshot;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.Product;
+import com.jaee.event.CatalogSyncEvent;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.event.StockChangedEvent;
+import com.jaee.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the current {@link CatalogSnapshot} and publishes a new one for every catalog
+ * write. Readers just dereference the current snapshot and never lock; writers are
+ * serialized and swap in a copy once their transaction has committed.
+ * <p>
+ * Stock changes and writes made by other instances ({@link CatalogSyncEvent}) are applied
+ * by reading the current values back from the database rather than from the event, so an
+ * event whose write the snapshot already includes (e.g. one that committed while the
+ * snapshot was loading) leaves it unchanged.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogSnapshotService {
+
+    private final ProductRepository productRepository;
+    private final ProductChangeService productChangeService;
+
+    @Value("${app.catalog.snapshot.enabled:true}")
+    private boolean enabled;
+
+    private volatile CatalogSnapshot current;
+
+    // Change log position taken before the snapshot was read; everything up to it is included
+    private ProductChangeService.Position loadedAt;
+
+    /**
+     * The current snapshot, or empty when the snapshot is disabled or not loaded yet
+     * (callers then fall back to the database).
+     */
+    public Optional<CatalogSnapshot> current() {
+        return Optional.ofNullable(current);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) {
+            log.info("Catalog snapshot disabled - product listing will be served from the database");
+            return;
+        }
+        ProductChangeService.Position position = productChangeService.head();
+        List<ProductDto> products = productRepository.findAllActiveWithDetails().stream()
+                .map(ProductDto::fromEntity)
+                .toList();
+        long version = current != null ? current.getVersion() + 1 : 1;
+        current = CatalogSnapshot.of(version, products);
+        loadedAt = position;
+        log.info("Catalog snapshot v{} loaded with {} active products", version, current.size());
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        if (current == null) {
+            return;
+        }
+        List<ProductDto> upserts = new ArrayList<>();
+        List<Long> removals = new ArrayList<>();
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            if (change.isDelete()) {
+                removals.add(change.getProductId());
+            } else {
+                upserts.add(change.getAfter());
+            }
+        }
+        publish(current.apply(current.getVersion() + 1, upserts, removals));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        if (current == null || !event.isRename()) {
+            return;
+        }
+        publish(current.renameCategory(current.getVersion() + 1, event.getCategoryId(), event.getAfter().getName()));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStockChanged(StockChangedEvent event) {
+        if (current == null) {
+            return;
+        }
+        Map<Long, Integer> levels = productRepository.findStockLevels(event.getDeltas().keySet()).stream()
+                .collect(Collectors.toMap(ProductRepository.StockLevel::getProductId, ProductRepository.StockLevel::getStockQty));
+        publish(current.applyStockLevels(current.getVersion() + 1, levels));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public synchronized void onCatalogSync(CatalogSyncEvent event) {
+        if (current == null || event.getProductIds().isEmpty() || event.getUpTo().compareTo(loadedAt) <= 0) {
+            return;
+        }
+        List<ProductDto> upserts = new ArrayList<>();
+        Set<Long> removals = new HashSet<>(event.getProductIds());
+        for (Product product : productRepository.findAllWithDetailsByIdIn(event.getProductIds())) {
+            upserts.add(ProductDto.fromEntity(product));
+            removals.remove(product.getId());
+        }
+        publish(current.apply(current.getVersion() + 1, upserts, removals));
+    }
+
+    private void publish(CatalogSnapshot next) {
+        current = next;
+        log.debug("Catalog snapshot v{} published ({} active products)", next.getVersion(), next.size());
+    }
+}
@@ -1,19 +1,27 @@
 package com.jaee.service;
 
+import com.jaee.catalog.CategoryRegistry;
+import com.jaee.catalog.LoadCoalescer;
 import com.jaee.dto.category.CategoryCreateRequest;
 import com.jaee.dto.category.CategoryDto;
 import com.jaee.entity.Category;
+import com.jaee.event.CategoryChangedEvent;
 import com.jaee.exception.BadRequestException;
 import com.jaee.exception.NotFoundException;
 import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.text.Normalizer;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -23,19 +31,38 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRegistry categoryRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoadCoalescer loadCoalescer;
     private static final Pattern NONLATIN = Pattern.compile("[^\\w-]");
     private static final Pattern WHITESPACE = Pattern.compile("[\\s]");
 
     public List<CategoryDto> getAllCategories() {
-        return categoryRepository.findAll().stream()
-                .map(CategoryDto::fromEntity)
-                .collect(Collectors.toList());
+        Optional<CategoryRegistry.Categories> categories = categoryRegistry.current();
+        if (categories.isPresent()) {
+            return categories.get().all();
+        }
+        return loadCoalescer.load("allCategories", "all", () -> {
+            Map<Long, Long> counts = productRepository.countActiveByCategory().stream()
+                    .collect(Collectors.toMap(ProductRepository.CategoryCount::getCategoryId,
+                            ProductRepository.CategoryCount::getProducts));
+            return categoryRepository.findAll(Sort.by("id")).stream()
+                    .map(category -> CategoryDto.fromEntity(category, counts.getOrDefault(category.getId(), 0L)))
+                    .toList();
+        });
     }
 
     public CategoryDto getCategoryBySlug(String slug) {
-        Category category = categoryRepository.findBySlug(slug)
-                .orElseThrow(() -> new NotFoundException("Category not found"));
-        return CategoryDto.fromEntity(category);
+        Optional<CategoryRegistry.Categories> categories = categoryRegistry.current();
+        if (categories.isPresent()) {
+            return categories.get().findBySlug(slug)
+                    .orElseThrow(() -> new NotFoundException("Category not found"));
+        }
+        return loadCoalescer.load("categoryBySlug", slug, () -> categoryRepository.findBySlug(slug)
+                .map(category -> CategoryDto.fromEntity(category,
+                        productRepository.countByCategoryIdAndActiveTrue(category.getId())))
+                .orElseThrow(() -> new NotFoundException("Category not found")));
     }
 
     @Transactional
@@ -55,14 +82,18 @@ public class CategoryService {
 
         categoryRepository.save(category);
         log.info("Category created: {}", category.getName());
-        
-        return CategoryDto.fromEntity(category);
+
+        CategoryDto created = CategoryDto.fromEntity(category, 0);
+        eventPublisher.publishEvent(new CategoryChangedEvent(null, created));
+        return created;
     }
 
     @Transactional
     public CategoryDto updateCategory(Long id, CategoryCreateRequest request) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Category not found"));
+        long productCount = productRepository.countByCategoryIdAndActiveTrue(id);
+        CategoryDto before = CategoryDto.fromEntity(category, productCount);
 
         String newSlug = toSlug(request.getName());
         if (!newSlug.equals(category.getSlug()) && categoryRepository.existsBySlug(newSlug)) {
@@ -76,8 +107,10 @@ public class CategoryService {
 
         categoryRepository.save(category);
         log.info("Category updated: {}", category.getName());
-        
-        return CategoryDto.fromEntity(category);
+
+        CategoryDto updated = CategoryDto.fromEntity(category, productCount);
+        eventPublisher.publishEvent(new CategoryChangedEvent(before, updated));
+        return updated;
     }
 
     @Transactional
@@ -85,12 +118,14 @@ public class CategoryService {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Category not found"));
         
-        if (!category.getProducts().isEmpty()) {
+        // Existence query rather than initializing the products collection
+        if (productRepository.existsByCategoryId(id)) {
             throw new BadRequestException("Cannot delete category with existing products");
         }
         
         categoryRepository.delete(category);
         log.info("Category deleted: {}", category.getName());
+        eventPublisher.publishEvent(new CategoryChangedEvent(CategoryDto.fromEntity(category, 0), null));
     }
 
     private String toSlug(String input) {
@@ -2,25 +2,29 @@ package com.jaee.service;
 
 import com.jaee.dto.address.AddressDto;
 import com.jaee.entity.*;
+import com.jaee.event.OrderPaidEvent;
+import com.jaee.event.StockChangedEvent;
 import com.jaee.exception.BadRequestException;
+import com.jaee.payment.PaymentGatewayClient;
 import com.jaee.repository.AddressRepository;
 import com.jaee.repository.CartRepository;
 import com.jaee.repository.OrderRepository;
-import com.jaee.repository.ProductRepository;
-import com.razorpay.RazorpayClient;
 import com.razorpay.RazorpayException;
 import com.razorpay.Utils;
-import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -30,13 +34,14 @@ public class CheckoutService {
 
     private final CartRepository cartRepository;
     private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
+    private final InventoryService inventoryService;
+    private final StockReservationService stockReservationService;
     private final AddressRepository addressRepository;
     private final CartService cartService;
     private final EmailService emailService;
-
-    @Value("${app.razorpay.key-id}")
-    private String razorpayKeyId;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.razorpay.key-secret}")
     private String razorpayKeySecret;
@@ -44,30 +49,56 @@ public class CheckoutService {
     @Value("${app.razorpay.webhook-secret}")
     private String razorpayWebhookSecret;
 
-    @Value("${app.razorpay.test-mode:true}")
-    private boolean testMode;
+    /**
+     * Create a Razorpay order for checkout, in three steps so that no database connection
+     * is held while the gateway is called: the pending order and its stock holds are
+     * committed first, the gateway order is created with no transaction open, and its id
+     * is attached to the pending order in a second short transaction. If the gateway
+     * cannot be reached the pending order is cancelled and its holds released.
+     */
+    public Map<String, Object> createOrder(User user, Long addressId) {
+        Order pendingOrder = transactionTemplate.execute(status -> placePendingOrder(user, addressId));
 
-    private RazorpayClient razorpayClient;
+        // Calculate total in paise (Razorpay expects amount in smallest currency unit)
+        long amountInPaise = pendingOrder.getTotalAmount()
+                .multiply(BigDecimal.valueOf(100))
+                .longValue();
 
-    @PostConstruct
-    public void init() {
-        if (testMode) {
-            log.info("Razorpay TEST MODE enabled - payments will be simulated");
-            return;
-        }
+        String gatewayOrderId;
         try {
-            razorpayClient = new RazorpayClient(razorpayKeyId, razorpayKeySecret);
-            log.info("Razorpay client initialized");
-        } catch (RazorpayException e) {
-            log.error("Failed to initialize Razorpay client: {}", e.getMessage());
+            gatewayOrderId = paymentGatewayClient.createOrder(pendingOrder.getId(), amountInPaise,
+                    pendingOrder.getCurrency(), Map.of(
+                            "order_id", pendingOrder.getId().toString(),
+                            "user_id", user.getId().toString()));
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status -> cancelPendingOrder(pendingOrder.getId()));
+            throw e;
         }
+
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.attachRazorpayOrderId(pendingOrder.getId(), gatewayOrderId));
+
+        log.info("{} order created for user {}: {}",
+                paymentGatewayClient.isTestMode() ? "TEST MODE: Mock" : "Razorpay", user.getId(), gatewayOrderId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderId", gatewayOrderId);
+        response.put("amount", amountInPaise);
+        response.put("currency", pendingOrder.getCurrency());
+        response.put("keyId", paymentGatewayClient.keyId());
+        response.put("internalOrderId", pendingOrder.getId());
+        response.put("testMode", paymentGatewayClient.isTestMode());
+
+        Map<String, String> prefill = new HashMap<>();
+        prefill.put("name", user.getName() != null ? user.getName() : "");
+        prefill.put("email", user.getEmail() != null ? user.getEmail() : "");
+        prefill.put("contact", user.getMobileNumber() != null ? user.getMobileNumber() : "");
+        response.put("prefill", prefill);
+
+        return response;
     }
 
-    /**
-     * Create a Razorpay order for checkout
-     */
-    @Transactional
-    public Map<String, Object> createOrder(User user, Long addressId) throws RazorpayException {
+    private Order placePendingOrder(User user, Long addressId) {
         Cart cart = cartRepository.findByUserWithItems(user)
                 .orElseThrow(() -> new BadRequestException("Cart is empty"));
 
@@ -81,9 +112,10 @@ public class CheckoutService {
             if (!product.getActive()) {
                 throw new BadRequestException("Product '" + product.getName() + "' is no longer available");
             }
-            if (product.getStockQty() < item.getQty()) {
+            int available = stockReservationService.available(product);
+            if (available < item.getQty()) {
                 throw new BadRequestException("Insufficient stock for '" + product.getName() + 
-                        "'. Available: " + product.getStockQty());
+                        "'. Available: " + available);
             }
         }
 
@@ -104,69 +136,19 @@ public class CheckoutService {
 
         // Create pending order in our database
         Order pendingOrder = createPendingOrder(user, cart, shippingAddress, shippingAddressStr);
+        reserveStock(pendingOrder);
+        return pendingOrder;
+    }
 
-        // Calculate total in paise (Razorpay expects amount in smallest currency unit)
-        long amountInPaise = pendingOrder.getTotalAmount()
-                .multiply(BigDecimal.valueOf(100))
-                .longValue();
-
-        // TEST MODE: Simulate Razorpay order without API call
-        if (testMode) {
-            String mockOrderId = "test_order_" + pendingOrder.getId() + "_" + System.currentTimeMillis();
-            pendingOrder.setRazorpayOrderId(mockOrderId);
-            orderRepository.save(pendingOrder);
-
-            log.info("TEST MODE: Created mock order for user {}: {}", user.getId(), mockOrderId);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("orderId", mockOrderId);
-            response.put("amount", amountInPaise);
-            response.put("currency", pendingOrder.getCurrency());
-            response.put("keyId", "test_key");
-            response.put("internalOrderId", pendingOrder.getId());
-            response.put("testMode", true);
-            
-            Map<String, String> prefill = new HashMap<>();
-            prefill.put("name", user.getName() != null ? user.getName() : "");
-            prefill.put("email", user.getEmail() != null ? user.getEmail() : "");
-            prefill.put("contact", user.getMobileNumber() != null ? user.getMobileNumber() : "");
-            response.put("prefill", prefill);
-            
-            return response;
-        }
-
-        // Create Razorpay order
-        JSONObject orderRequest = new JSONObject();
-        orderRequest.put("amount", amountInPaise);
-        orderRequest.put("currency", pendingOrder.getCurrency());
-        orderRequest.put("receipt", "order_" + pendingOrder.getId());
-        orderRequest.put("notes", new JSONObject()
-                .put("order_id", pendingOrder.getId().toString())
-                .put("user_id", user.getId().toString())
-        );
-
-        com.razorpay.Order razorpayOrder = razorpayClient.orders.create(orderRequest);
-
-        pendingOrder.setRazorpayOrderId(razorpayOrder.get("id"));
-        orderRepository.save(pendingOrder);
-
-        log.info("Razorpay order created for user {}: {}", user.getId(), razorpayOrder.get("id"));
-
-        Map<String, Object> response = new HashMap<>();
-        response.put("orderId", razorpayOrder.get("id"));
-        response.put("amount", amountInPaise);
-        response.put("currency", pendingOrder.getCurrency());
-        response.put("keyId", razorpayKeyId);
-        response.put("internalOrderId", pendingOrder.getId());
-        response.put("testMode", false);
-        
-        Map<String, String> prefill = new HashMap<>();
-        prefill.put("name", user.getName() != null ? user.getName() : "");
-        prefill.put("email", user.getEmail() != null ? user.getEmail() : "");
-        prefill.put("contact", user.getMobileNumber() != null ? user.getMobileNumber() : "");
-        response.put("prefill", prefill);
-
-        return response;
+    private void cancelPendingOrder(Long orderId) {
+        orderRepository.findById(orderId).ifPresent(order -> {
+            if (order.getStatus() == Order.OrderStatus.PENDING) {
+                order.setStatus(Order.OrderStatus.CANCELLED);
+                orderRepository.save(order);
+                stockReservationService.release(order.getId());
+                log.info("Order {} cancelled, payment gateway order could not be created", order.getId());
+            }
+        });
     }
 
     /**
@@ -179,7 +161,7 @@ public class CheckoutService {
                 .orElseThrow(() -> new BadRequestException("Order not found"));
 
         // TEST MODE: Skip signature verification
-        if (!testMode) {
+        if (!paymentGatewayClient.isTestMode()) {
             try {
                 JSONObject attributes = new JSONObject();
                 attributes.put("razorpay_order_id", razorpayOrderId);
@@ -211,13 +193,8 @@ public class CheckoutService {
         order.setRazorpayPaymentId(razorpayPaymentId);
 
         // Reduce stock
-        for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            if (product != null) {
-                product.reduceStock(item.getQty());
-                productRepository.save(product);
-            }
-        }
+        reduceStock(order);
+        eventPublisher.publishEvent(OrderPaidEvent.of(order));
 
         orderRepository.save(order);
 
@@ -232,7 +209,7 @@ public class CheckoutService {
         }
 
         log.info("Order {} completed successfully via {} payment {}", 
-                order.getId(), testMode ? "TEST" : "Razorpay", razorpayPaymentId);
+                order.getId(), paymentGatewayClient.isTestMode() ? "TEST" : "Razorpay", razorpayPaymentId);
 
         return Map.of(
                 "success", true,
@@ -293,13 +270,8 @@ public class CheckoutService {
         order.setPaidAt(LocalDateTime.now());
         order.setRazorpayPaymentId(razorpayPaymentId);
 
-        for (OrderItem item : order.getItems()) {
-            Product product = item.getProduct();
-            if (product != null) {
-                product.reduceStock(item.getQty());
-                productRepository.save(product);
-            }
-        }
+        reduceStock(order);
+        eventPublisher.publishEvent(OrderPaidEvent.of(order));
 
         orderRepository.save(order);
         cartService.clearCart(order.getUser());
@@ -330,11 +302,70 @@ public class CheckoutService {
                     if (order.getStatus() == Order.OrderStatus.PENDING) {
                         order.setStatus(Order.OrderStatus.CANCELLED);
                         orderRepository.save(order);
+                        stockReservationService.release(order.getId());
                         log.info("Order {} marked as cancelled due to payment failure", order.getId());
                     }
                 });
     }
 
+    /**
+     * Holds the order's quantities until it is paid or the hold expires. Fails the whole
+     * checkout (rolling back the pending order) if any line can no longer be held.
+     */
+    private void reserveStock(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, String> names = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQty(), Integer::sum);
+            names.put(item.getProduct().getId(), item.getNameSnapshot());
+        }
+        List<Long> failed = stockReservationService.reserve(order.getId(), quantities);
+        if (!failed.isEmpty()) {
+            throw new BadRequestException("Insufficient stock for '" + names.get(failed.get(0)) + "'");
+        }
+    }
+
+    /**
+     * Takes the order's quantities off stock in one batched conditional update. The
+     * payment has already been taken, so lines that could not be applied do not fail the
+     * order; they are logged for fulfilment to resolve. Lines claimed from hot-stock
+     * counters are already off stock and reach the database with the next flush; so do
+     * lines of hot products whose hold expired before the payment, which are claimed now.
+     */
+    private void reduceStock(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            if (item.getProduct() != null) {
+                quantities.merge(item.getProduct().getId(), item.getQty(), Integer::sum);
+            }
+        }
+        StockReservationService.Settlement settlement = stockReservationService.settle(order.getId());
+        quantities.keySet().removeAll(settlement.claimed());
+        Map<Long, Integer> unheld = new HashMap<>(quantities);
+        unheld.keySet().removeAll(settlement.held());
+        Map<Long, Boolean> hot = stockReservationService.claimHot(unheld);
+        quantities.keySet().removeAll(hot.keySet());
+
+        List<Long> failed = new ArrayList<>(inventoryService.decrement(quantities));
+        hot.forEach((productId, claimed) -> {
+            if (!claimed) {
+                failed.add(productId);
+            }
+        });
+        if (!failed.isEmpty()) {
+            log.error("Order {} paid but stock could not be reduced for products {} (insufficient stock)",
+                    order.getId(), failed);
+        }
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        quantities.forEach((productId, qty) -> {
+            if (!failed.contains(productId)) {
+                deltas.put(productId, -qty);
+            }
+        });
+        eventPublisher.publishEvent(new StockChangedEvent(deltas));
+    }
+
     private Order createPendingOrder(User user, Cart cart, Address shippingAddress, String shippingAddressStr) {
         BigDecimal total = cart.getItems().stream()
                 .map(CartItem::getSubtotal)
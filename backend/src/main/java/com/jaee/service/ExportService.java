@@ -0,0 +1,322 @@
+package com.jaee.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.jaee.dto.order.OrderExportRow;
+import com.jaee.dto.product.ProductExportRow;
+import com.jaee.entity.Order.OrderStatus;
+import com.jaee.exception.BadRequestException;
+import com.jaee.util.CsvRecordWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams products and orders as NDJSON or CSV for accounting and marketplace feeds.
+ * Rows come from a single forward-only query read with a JDBC fetch size inside a
+ * read-only transaction, so the driver keeps only one fetch batch in memory and the
+ * connection is held only while the export is being written.
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format fromParam(String format) {
+            for (Format value : values()) {
+                if (value.extension.equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new BadRequestException("Unsupported export format: " + format);
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    // Joined with product_images, so a product spans one row per image
+    private static final String PRODUCTS_SQL = """
+            SELECT p.id, p.name, p.slug, p.description, p.price, p.compare_at_price, p.currency,
+                   p.category_id, c.slug AS category_slug, p.stock_qty, p.active, p.created_at,
+                   pi.image_url
+            FROM products p
+            LEFT JOIN categories c ON c.id = p.category_id
+            LEFT JOIN product_images pi ON pi.product_id = p.id
+            ORDER BY p.id
+            """;
+
+    // Joined with order_items, so an order spans one row per item
+    private static final String ORDERS_SQL = """
+            SELECT o.id, o.status, o.user_id, o.customer_email, o.customer_phone, o.total_amount,
+                   o.currency, o.razorpay_order_id, o.razorpay_payment_id, o.created_at, o.paid_at,
+                   oi.id AS item_id, oi.product_id, oi.name_snapshot, oi.price_snapshot, oi.qty
+            FROM orders o
+            LEFT JOIN order_items oi ON oi.order_id = o.id
+            """;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ExportService(
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            @Value("${app.export.fetch-size:1000}") int fetchSize
+    ) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Postgres only streams with a fetch size when autocommit is off
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public void exportProducts(OutputStream out, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RecordSink<ProductExportRow> sink;
+        if (format == Format.CSV) {
+            CsvRecordWriter csv = new CsvRecordWriter(writer);
+            csv.write("id", "name", "slug", "description", "price", "compareAtPrice", "currency",
+                    "categoryId", "categorySlug", "stockQty", "active", "images", "createdAt");
+            sink = product -> csv.write(product.getId(), product.getName(), product.getSlug(),
+                    product.getDescription(), product.getPrice(), product.getCompareAtPrice(),
+                    product.getCurrency(), product.getCategoryId(), product.getCategorySlug(),
+                    product.getStockQty(), product.getActive(), String.join("|", product.getImages()),
+                    product.getCreatedAt());
+        } else {
+            sink = ndjson(writer, ProductExportRow.class);
+        }
+
+        long count = stream(PRODUCTS_SQL, new Object[0], new RowGrouper<>() {
+            @Override
+            public ProductExportRow start(ResultSet rs) throws SQLException {
+                return ProductExportRow.builder()
+                        .id(rs.getLong("id"))
+                        .name(rs.getString("name"))
+                        .slug(rs.getString("slug"))
+                        .description(rs.getString("description"))
+                        .price(rs.getBigDecimal("price"))
+                        .compareAtPrice(rs.getBigDecimal("compare_at_price"))
+                        .currency(rs.getString("currency"))
+                        .categoryId(rs.getObject("category_id", Long.class))
+                        .categorySlug(rs.getString("category_slug"))
+                        .stockQty(rs.getObject("stock_qty", Integer.class))
+                        .active(rs.getObject("active", Boolean.class))
+                        .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                        .build();
+            }
+
+            @Override
+            public void add(ProductExportRow product, ResultSet rs) throws SQLException {
+                String imageUrl = rs.getString("image_url");
+                if (imageUrl != null) {
+                    product.getImages().add(imageUrl);
+                }
+            }
+        }, sink);
+        writer.flush();
+        log.info("Exported {} products as {}", count, format);
+    }
+
+    /**
+     * Exports orders created in [{@code from}, {@code to}] (whole days, both optional),
+     * optionally limited to one status. CSV has one line per order item; NDJSON has one
+     * order per line with its items nested.
+     */
+    public void exportOrders(OutputStream out, Format format, OrderStatus status,
+                             LocalDate from, LocalDate to) throws IOException {
+        StringBuilder sql = new StringBuilder(ORDERS_SQL).append("WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            args.add(status.name());
+        }
+        if (from != null) {
+            sql.append(" AND o.created_at >= ?");
+            args.add(from.atStartOfDay());
+        }
+        if (to != null) {
+            sql.append(" AND o.created_at < ?");
+            args.add(to.plusDays(1).atStartOfDay());
+        }
+        sql.append(" ORDER BY o.id, oi.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RecordSink<OrderExportRow> sink;
+        if (format == Format.CSV) {
+            CsvRecordWriter csv = new CsvRecordWriter(writer);
+            csv.write("orderId", "status", "userId", "customerEmail", "customerPhone", "totalAmount",
+                    "currency", "razorpayOrderId", "razorpayPaymentId", "createdAt", "paidAt",
+                    "itemId", "productId", "itemName", "itemPrice", "qty");
+            sink = order -> {
+                List<OrderExportRow.Item> items = order.getItems().isEmpty()
+                        ? List.of(new OrderExportRow.Item())
+                        : order.getItems();
+                for (OrderExportRow.Item item : items) {
+                    csv.write(order.getId(), order.getStatus(), order.getUserId(), order.getCustomerEmail(),
+                            order.getCustomerPhone(), order.getTotalAmount(), order.getCurrency(),
+                            order.getRazorpayOrderId(), order.getRazorpayPaymentId(), order.getCreatedAt(),
+                            order.getPaidAt(), item.getId(), item.getProductId(), item.getName(),
+                            item.getPrice(), item.getQty());
+                }
+            };
+        } else {
+            sink = ndjson(writer, OrderExportRow.class);
+        }
+
+        long count = stream(sql.toString(), args.toArray(), new RowGrouper<>() {
+            @Override
+            public OrderExportRow start(ResultSet rs) throws SQLException {
+                return OrderExportRow.builder()
+                        .id(rs.getLong("id"))
+                        .status(rs.getString("status"))
+                        .userId(rs.getLong("user_id"))
+                        .customerEmail(rs.getString("customer_email"))
+                        .customerPhone(rs.getString("customer_phone"))
+                        .totalAmount(rs.getBigDecimal("total_amount"))
+                        .currency(rs.getString("currency"))
+                        .razorpayOrderId(rs.getString("razorpay_order_id"))
+                        .razorpayPaymentId(rs.getString("razorpay_payment_id"))
+                        .createdAt(rs.getObject("created_at", LocalDateTime.class))
+                        .paidAt(rs.getObject("paid_at", LocalDateTime.class))
+                        .build();
+            }
+
+            @Override
+            public void add(OrderExportRow order, ResultSet rs) throws SQLException {
+                Long itemId = rs.getObject("item_id", Long.class);
+                if (itemId != null) {
+                    order.getItems().add(OrderExportRow.Item.builder()
+                            .id(itemId)
+                            .productId(rs.getObject("product_id", Long.class))
+                            .name(rs.getString("name_snapshot"))
+                            .price(rs.getBigDecimal("price_snapshot"))
+                            .qty(rs.getObject("qty", Integer.class))
+                            .build());
+                }
+            }
+        }, sink);
+        writer.flush();
+        log.info("Exported {} orders as {}", count, format);
+    }
+
+    private <T> RecordSink<T> ndjson(Writer writer, Class<T> type) {
+        ObjectWriter json = objectMapper.writerFor(type)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return record -> {
+            json.writeValue(writer, record);
+            writer.write('\n');
+        };
+    }
+
+    /**
+     * Runs the query and hands each group of consecutive rows sharing the first column
+     * (the parent id) to the sink as one record. Returns the number of records written.
+     */
+    private <T> long stream(String sql, Object[] args, RowGrouper<T> grouper, RecordSink<T> sink) {
+        GroupingHandler<T> handler = new GroupingHandler<>(grouper, sink);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.query(sql, handler, args);
+                handler.finish();
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the transaction has been rolled back
+            log.warn("Export aborted after {} records: {}", handler.count, e.getCause().getMessage());
+            throw e;
+        }
+        return handler.count;
+    }
+
+    private interface RowGrouper<T> {
+        /** Builds the record from the first row of its group. */
+        T start(ResultSet rs) throws SQLException;
+
+        /** Adds the row's child columns (if any) to the record. */
+        void add(T record, ResultSet rs) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface RecordSink<T> {
+        void write(T record) throws IOException;
+    }
+
+    private static final class GroupingHandler<T> implements RowCallbackHandler {
+        private final RowGrouper<T> grouper;
+        private final RecordSink<T> sink;
+        private T current;
+        private long currentId;
+        private long count;
+
+        GroupingHandler(RowGrouper<T> grouper, RecordSink<T> sink) {
+            this.grouper = grouper;
+            this.sink = sink;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong(1);
+            if (current == null || id != currentId) {
+                finish();
+                current = grouper.start(rs);
+                currentId = id;
+            }
+            grouper.add(current, rs);
+        }
+
+        void finish() {
+            if (current == null) {
+                return;
+            }
+            try {
+                sink.write(current);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+            count++;
+        }
+    }
+}
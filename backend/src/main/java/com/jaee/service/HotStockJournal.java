@@ -0,0 +1,132 @@
+package com.jaee.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Local append-only log of hot-stock changes that have not been flushed to the database.
+ * A header line names the journal; every change is one {@code <seq> <productId> <delta>}
+ * line, where delta is the change to {@code stock_qty}. Writes go straight to the file, so
+ * they survive the process dying; {@link #sync()} makes them survive the machine too.
+ * <p>
+ * Not thread-safe; {@link HotStockService} serialises access.
+ */
+final class HotStockJournal implements Closeable {
+
+    private static final String HEADER_PREFIX = "# ";
+
+    private final String id;
+    private final FileChannel channel;
+    private final long headerSize;
+    private long lastSeq;
+
+    private HotStockJournal(String id, FileChannel channel, long headerSize) {
+        this.id = id;
+        this.channel = channel;
+        this.headerSize = headerSize;
+    }
+
+    /**
+     * Starts a new, empty journal at {@code path}, replacing any existing file.
+     */
+    static HotStockJournal create(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        String id = UUID.randomUUID().toString();
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        byte[] header = (HEADER_PREFIX + id + "\n").getBytes(StandardCharsets.US_ASCII);
+        channel.write(ByteBuffer.wrap(header));
+        channel.force(true);
+        return new HotStockJournal(id, channel, header.length);
+    }
+
+    /**
+     * Reads the journal left at {@code path} by a previous run, or returns null when there
+     * is none. A torn last line from a crash mid-write is skipped.
+     */
+    static Contents read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        // Only newline-terminated lines are complete; anything after the last newline is a torn write
+        String[] lines = Files.readString(path, StandardCharsets.US_ASCII).split("\n", -1);
+        if (lines.length < 2 || !lines[0].startsWith(HEADER_PREFIX)) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 1; i < lines.length - 1; i++) {
+            String[] fields = lines[i].split(" ");
+            if (fields.length == 3) {
+                entries.add(new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2])));
+            }
+        }
+        return new Contents(lines[0].substring(HEADER_PREFIX.length()), entries);
+    }
+
+    String id() {
+        return id;
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Appends one line per change (product id to stock delta) in a single write.
+     */
+    void append(Map<Long, Integer> deltas) throws IOException {
+        long seq = lastSeq;
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+            lines.append(++seq).append(' ').append(delta.getKey()).append(' ').append(delta.getValue()).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+        long start = channel.position();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // Don't leave a partial line for the next append to run into
+            channel.truncate(start);
+            throw e;
+        }
+        lastSeq = seq;
+    }
+
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Drops every change once all of them are in the database. Sequence numbers keep
+     * counting up, so the database checkpoint stays valid.
+     */
+    void truncate() throws IOException {
+        channel.truncate(headerSize);
+        channel.position(headerSize);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    record Entry(long seq, long productId, int delta) {
+    }
+
+    record Contents(String id, List<Entry> entries) {
+    }
+}
@@ -0,0 +1,509 @@
+package com.jaee.service;
+
+import com.jaee.dto.product.HotStockDto;
+import com.jaee.entity.HotStockProduct;
+import com.jaee.entity.Product;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.event.StockChangedEvent;
+import com.jaee.exception.BadRequestException;
+import com.jaee.exception.NotFoundException;
+import com.jaee.repository.HotStockProductRepository;
+import com.jaee.repository.ProductRepository;
+import com.jaee.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Flash-sale ("hot SKU") mode. For a product switched to hot mode, the units left for sale
+ * live in memory, split over several striped counters, and checkouts claim units with a
+ * compare-and-set on one stripe instead of locking the product's row; claims on one
+ * product run in parallel across cores.
+ * <p>
+ * Claimed units leave {@code products.stock_qty} in batches: every claim (and every unit
+ * given back) is appended to a local journal and accumulated, and the reconciler writes the
+ * net change per product in one batched UPDATE, recording the last journal sequence number
+ * it applied in the same transaction. On startup, journal entries past that checkpoint are
+ * replayed, so units claimed before a crash are not sold again.
+ * <p>
+ * The counters belong to this instance and start from the product's whole stock, so two
+ * instances selling the same hot product would each sell all of it. Hot mode is therefore
+ * only available when {@code app.single-node} declares that one instance serves all
+ * traffic; otherwise {@link #enable} is refused and products left in hot mode fall back to
+ * row-locked reservations at startup. Holds placed on a product before it turned hot are
+ * not in its counter, and stock edits to a hot product move its counter by the same amount.
+ * <p>
+ * Replay and counter loading run as a lifecycle phase ahead of the web server, so no
+ * checkout reaches a hot product before its counter exists.
+ */
+@Service
+@Slf4j
+public class HotStockService implements SmartLifecycle {
+
+    // Lifecycle beans start in ascending phase order; the embedded web server starts last
+    private static final int PHASE = 0;
+
+    private static final String LOCK_SQL = "SELECT stock_qty FROM products WHERE id = ? FOR UPDATE";
+    private static final String CHECKPOINT_SQL = "SELECT seq FROM hot_stock_checkpoints WHERE journal_id = ?";
+    private static final String UPDATE_CHECKPOINT_SQL =
+            "UPDATE hot_stock_checkpoints SET seq = ?, updated_at = CURRENT_TIMESTAMP WHERE journal_id = ?";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO hot_stock_checkpoints (journal_id, seq) VALUES (?, ?)";
+
+    private final HotStockProductRepository hotStockProductRepository;
+    private final ProductRepository productRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+    private final Path journalPath;
+    private final boolean singleNode;
+
+    private final Map<Long, Stripes> counters = new ConcurrentHashMap<>();
+
+    // Guarded by this: the journal and the stock changes in it that are not flushed yet
+    private HotStockJournal journal;
+    private final Map<Long, Integer> pending = new HashMap<>();
+
+    // Held while flushing, so only one batch is in the database at a time
+    private final Object flushLock = new Object();
+
+    private volatile boolean running;
+
+    public HotStockService(
+            HotStockProductRepository hotStockProductRepository,
+            ProductRepository productRepository,
+            StockReservationRepository stockReservationRepository,
+            InventoryService inventoryService,
+            ApplicationEventPublisher eventPublisher,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.checkout.hot-stock.stripes:0}") int stripes,
+            @Value("${app.checkout.hot-stock.journal:./data/hot-stock.journal}") Path journalPath,
+            @Value("${app.single-node:false}") boolean singleNode
+    ) {
+        this.hotStockProductRepository = hotStockProductRepository;
+        this.productRepository = productRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.inventoryService = inventoryService;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.journalPath = journalPath;
+        this.singleNode = singleNode;
+    }
+
+    @Override
+    public void start() {
+        try {
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open hot stock journal " + journalPath, e);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        flush();
+        synchronized (this) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    log.warn("Failed to close hot stock journal: {}", e.getMessage());
+                }
+                journal = null;
+            }
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public boolean isHot(Long productId) {
+        return counters.containsKey(productId);
+    }
+
+    /**
+     * Units of a hot product left for sale, or empty when the product is not hot.
+     */
+    public OptionalInt remaining(Long productId) {
+        Stripes counter = counters.get(productId);
+        return counter == null ? OptionalInt.empty() : OptionalInt.of((int) Math.max(0, counter.sum()));
+    }
+
+    /**
+     * Claims every line (product id to quantity) from the hot counters, all or nothing.
+     * Claimed units are off stock from here on; give them back with {@link #restore}.
+     *
+     * @return ids of the products that could not be claimed (not hot, or not enough units
+     *         left); when not empty, nothing was claimed
+     */
+    public List<Long> claim(Map<Long, Integer> quantities) {
+        Map<Long, Integer> claimed = new HashMap<>();
+        List<Long> failed = new ArrayList<>();
+        quantities.forEach((productId, qty) -> {
+            Stripes counter = counters.get(productId);
+            if (counter != null && counter.take(qty)) {
+                claimed.put(productId, qty);
+            } else {
+                failed.add(productId);
+            }
+        });
+        if (!failed.isEmpty()) {
+            refill(claimed);
+            return failed;
+        }
+
+        Map<Long, Integer> deltas = new HashMap<>();
+        claimed.forEach((productId, qty) -> deltas.put(productId, -qty));
+        try {
+            record(deltas);
+        } catch (IOException e) {
+            refill(claimed);
+            throw new UncheckedIOException("Failed to journal hot stock claim", e);
+        }
+        return List.of();
+    }
+
+    /**
+     * Gives claimed units (product id to quantity) back, to the counter when the product is
+     * still hot and to {@code stock_qty} on the next flush either way.
+     */
+    public void restore(Map<Long, Integer> quantities) {
+        Map<Long, Integer> deltas = new HashMap<>(quantities);
+        try {
+            record(deltas);
+        } catch (IOException e) {
+            // The units stay off stock, which never oversells
+            log.error("Failed to journal hot stock returned to products {}", quantities.keySet(), e);
+            return;
+        }
+        refill(quantities);
+    }
+
+    /**
+     * Writes the net stock change of every claim and return since the last flush in one
+     * transaction, then empties the journal once nothing newer is waiting.
+     */
+    @Scheduled(fixedDelayString = "${app.checkout.hot-stock.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushLock) {
+            String journalId;
+            long upTo;
+            Map<Long, Integer> batch;
+            synchronized (this) {
+                if (journal == null || pending.isEmpty()) {
+                    return;
+                }
+                try {
+                    journal.sync();
+                } catch (IOException e) {
+                    log.warn("Failed to sync hot stock journal: {}", e.getMessage());
+                }
+                journalId = journal.id();
+                upTo = journal.lastSeq();
+                batch = new HashMap<>(pending);
+                pending.clear();
+            }
+
+            try {
+                apply(journalId, upTo, batch);
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush hot stock for products {}, will retry: {}", batch.keySet(), e.getMessage());
+                synchronized (this) {
+                    batch.forEach((productId, delta) -> pending.merge(productId, delta, Integer::sum));
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (pending.isEmpty() && journal != null && journal.lastSeq() == upTo) {
+                    try {
+                        journal.truncate();
+                    } catch (IOException e) {
+                        log.warn("Failed to truncate hot stock journal: {}", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Switches a product to hot mode. Its counter starts at stock minus unexpired holds.
+     *
+     * @throws BadRequestException unless this is a single-node deployment
+     */
+    public HotStockDto enable(Long productId) {
+        if (!productRepository.existsById(productId)) {
+            throw new NotFoundException("Product not found");
+        }
+        if (!singleNode) {
+            throw new BadRequestException("Flash-sale mode needs a single-node deployment (app.single-node)");
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            if (counters.containsKey(productId)) {
+                return;
+            }
+            // Holding the row lock until commit makes reservations that were already on
+            // their way wait, then see the counter and claim from it instead
+            Integer stock = jdbcTemplate.queryForObject(LOCK_SQL, Integer.class, productId);
+            counters.put(productId, new Stripes(stripes, unitsForSale(productId, stock, LocalDateTime.now())));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        counters.remove(productId);
+                    }
+                }
+            });
+            hotStockProductRepository.save(HotStockProduct.builder().productId(productId).build());
+        });
+        log.info("Product {} switched to hot stock mode", productId);
+        return status(productId);
+    }
+
+    /**
+     * Switches a product back to row-locked reservations, after flushing its claims.
+     * Claimed holds of pending orders stay claimed.
+     */
+    public HotStockDto disable(Long productId) {
+        if (counters.remove(productId) != null) {
+            hotStockProductRepository.deleteById(productId);
+            flush();
+            log.info("Product {} switched out of hot stock mode", productId);
+        } else if (hotStockProductRepository.existsById(productId)) {
+            // Marked hot but never given a counter, e.g. on a multi-node deployment
+            hotStockProductRepository.deleteById(productId);
+        }
+        return status(productId);
+    }
+
+    public HotStockDto status(Long productId) {
+        OptionalInt remaining = remaining(productId);
+        return HotStockDto.builder()
+                .productId(productId)
+                .hot(remaining.isPresent())
+                .remaining(remaining.isPresent() ? remaining.getAsInt() : null)
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            Long productId = change.getProductId();
+            if (change.isDelete()) {
+                counters.remove(productId);
+                continue;
+            }
+            Stripes counter = counters.get(productId);
+            if (counter != null && change.getBefore() != null) {
+                int before = change.getBefore().getStockQty() != null ? change.getBefore().getStockQty() : 0;
+                int after = change.getAfter().getStockQty() != null ? change.getAfter().getStockQty() : 0;
+                counter.add(after - before);
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        HotStockJournal.Contents previous = HotStockJournal.read(journalPath);
+        if (previous != null && !previous.entries().isEmpty()) {
+            replay(previous);
+        }
+        synchronized (this) {
+            journal = HotStockJournal.create(journalPath);
+        }
+
+        List<Long> ids = hotStockProductRepository.findAll().stream().map(HotStockProduct::getProductId).toList();
+        if (!singleNode) {
+            if (!ids.isEmpty()) {
+                log.error("Products {} are marked hot but this is not a single-node deployment (app.single-node);"
+                        + " they are sold with row-locked reservations until switched out of hot mode", ids);
+            }
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (Product product : productRepository.findAllById(ids)) {
+            counters.put(product.getId(), new Stripes(stripes, unitsForSale(product.getId(), product.getStockQty(), now)));
+        }
+        log.info("Hot stock mode active for {} products, journal {}", counters.size(), journalPath);
+    }
+
+    // Products switched out of hot mode meanwhile have no counter to put units back into
+    private void refill(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, qty) -> {
+            Stripes counter = counters.get(productId);
+            if (counter != null) {
+                counter.add(qty);
+            }
+        });
+    }
+
+    private synchronized void record(Map<Long, Integer> deltas) throws IOException {
+        if (journal == null) {
+            throw new IOException("Hot stock journal is not open");
+        }
+        journal.append(deltas);
+        deltas.forEach((productId, delta) -> pending.merge(productId, delta, Integer::sum));
+    }
+
+    private void replay(HotStockJournal.Contents previous) {
+        long checkpoint = jdbcTemplate.query(CHECKPOINT_SQL,
+                rs -> rs.next() ? rs.getLong(1) : 0L, previous.id());
+        Map<Long, Integer> deltas = new HashMap<>();
+        long upTo = checkpoint;
+        for (HotStockJournal.Entry entry : previous.entries()) {
+            if (entry.seq() > checkpoint) {
+                deltas.merge(entry.productId(), entry.delta(), Integer::sum);
+                upTo = Math.max(upTo, entry.seq());
+            }
+        }
+        if (upTo > checkpoint) {
+            apply(previous.id(), upTo, deltas);
+            log.info("Replayed {} unflushed hot stock changes from {}", upTo - checkpoint, journalPath);
+        }
+    }
+
+    private void apply(String journalId, long upTo, Map<Long, Integer> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryService.adjust(deltas);
+            if (jdbcTemplate.update(UPDATE_CHECKPOINT_SQL, upTo, journalId) == 0) {
+                jdbcTemplate.update(INSERT_CHECKPOINT_SQL, journalId, upTo);
+            }
+            if (!deltas.isEmpty()) {
+                eventPublisher.publishEvent(new StockChangedEvent(deltas));
+            }
+        });
+    }
+
+    private long unitsForSale(Long productId, Integer stockQty, LocalDateTime now) {
+        int unflushed;
+        synchronized (this) {
+            unflushed = pending.getOrDefault(productId, 0);
+        }
+        long stock = (stockQty != null ? stockQty : 0) + unflushed;
+        return Math.max(0, stock - stockReservationRepository.sumActive(productId, now));
+    }
+
+    /**
+     * Units of one product spread over counters a cache line apart. A claim starts at the
+     * calling thread's stripe and moves on only when that one runs short.
+     */
+    static final class Stripes {
+
+        // Longs per 128 bytes, so neighbouring stripes never share a cache line
+        private static final int PAD = 16;
+
+        private final AtomicLongArray cells;
+        private final int count;
+
+        Stripes(int count, long units) {
+            this.count = count;
+            this.cells = new AtomicLongArray(count * PAD);
+            for (int i = 0; i < count; i++) {
+                cells.set(i * PAD, units / count + (i < units % count ? 1 : 0));
+            }
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += cells.get(i * PAD);
+            }
+            return sum;
+        }
+
+        boolean take(int qty) {
+            long[] taken = new long[count];
+            long needed = drain(qty, taken);
+            if (needed > 0) {
+                // Not enough across all stripes; claims racing for the last units may both
+                // come up short, which errs on the side of not overselling
+                for (int stripe = 0; stripe < count; stripe++) {
+                    if (taken[stripe] > 0) {
+                        cells.addAndGet(stripe * PAD, taken[stripe]);
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Adds units to the calling thread's stripe. Negative units are taken from every
+         * stripe in turn, like a claim, and stop at zero rather than leaving one stripe
+         * negative while the others still sell.
+         */
+        void add(long units) {
+            if (units >= 0) {
+                cells.addAndGet(home() * PAD, units);
+            } else {
+                drain(-units, new long[count]);
+            }
+        }
+
+        /**
+         * Takes up to {@code units} starting at the home stripe, recording what came from
+         * each stripe in {@code taken}, and returns how many could not be taken.
+         */
+        private long drain(long units, long[] taken) {
+            int home = home();
+            long needed = units;
+            for (int i = 0; i < count && needed > 0; i++) {
+                int stripe = (home + i) % count;
+                while (true) {
+                    long left = cells.get(stripe * PAD);
+                    if (left <= 0) {
+                        break;
+                    }
+                    long take = Math.min(left, needed);
+                    if (cells.compareAndSet(stripe * PAD, left, left - take)) {
+                        taken[stripe] = take;
+                        needed -= take;
+                        break;
+                    }
+                }
+            }
+            return needed;
+        }
+
+        private int home() {
+            return Math.floorMod(Long.hashCode(Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L), count);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.jaee.service;
+
+import com.jaee.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stock changes made directly in SQL, so concurrent orders for the same product never
+ * read-modify-write {@code stock_qty}. Runs in the caller's transaction.
+ */
+@Service
+public class InventoryService {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE products SET stock_qty = stock_qty - ? WHERE id = ? AND stock_qty >= ?";
+
+    private static final String ADJUST_SQL = "UPDATE products SET stock_qty = stock_qty + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public InventoryService(DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Decrements stock for every line (product id to quantity) in one batched conditional
+     * UPDATE. A line only applies when enough stock is left, so stock can never go
+     * negative; lines are applied in id order so concurrent orders lock rows in the same
+     * order.
+     *
+     * @return ids of the products whose line was not applied (not enough stock, or no
+     *         such product); every other line has been decremented
+     */
+    public List<Long> decrement(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(new TreeMap<>(quantities).keySet());
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            int qty = quantities.get(id);
+            rows.add(new Object[]{qty, id, qty});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(DECREMENT_SQL, rows);
+
+        List<Long> failed = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (updated[i] == 0) {
+                failed.add(ids.get(i));
+            }
+        }
+        evictAfterCommit(ids);
+        return failed;
+    }
+
+    /**
+     * Adds a signed delta to the stock of every product (product id to delta) in one
+     * batched UPDATE, without a stock check. For changes whose availability has already
+     * been decided elsewhere, such as units claimed from hot-stock counters.
+     */
+    public void adjust(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(new TreeMap<>(deltas).keySet());
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[]{deltas.get(id), id});
+        }
+        jdbcTemplate.batchUpdate(ADJUST_SQL, rows);
+        evictAfterCommit(ids);
+    }
+
+    // The update bypasses Hibernate, so cached copies of these products are now stale
+    private void evictAfterCommit(List<Long> ids) {
+        Runnable evict = () -> ids.forEach(id -> entityManagerFactory.getCache().evict(Product.class, id));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict.run();
+            }
+        });
+    }
+}
@@ -1,19 +1,26 @@
 package com.jaee.service;
 
 import com.jaee.dto.common.PageResponse;
+import com.jaee.dto.common.SliceResponse;
 import com.jaee.dto.order.OrderDto;
 import com.jaee.entity.Order;
 import com.jaee.entity.User;
+import com.jaee.exception.BadRequestException;
 import com.jaee.exception.NotFoundException;
 import com.jaee.repository.OrderRepository;
+import com.jaee.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -28,6 +35,41 @@ public class OrderService {
         return PageResponse.from(orderPage, OrderDto::fromEntity);
     }
 
+    /**
+     * Cursor-paginated order history, newest first. Seeks past the previous page's
+     * last (createdAt, id) so deep pages cost the same as the first one.
+     */
+    @Transactional(readOnly = true)
+    public SliceResponse<OrderDto> scrollUserOrders(User user, String cursor, int size) {
+        if (size < 1) {
+            throw new BadRequestException("Page size must be positive");
+        }
+        Limit limit = Limit.of(size + 1);
+        List<Order> orders;
+        if (cursor == null) {
+            orders = orderRepository.findLatestByUser(user, limit);
+        } else {
+            PageCursor after = PageCursor.decode(cursor, "createdAt", true);
+            orders = orderRepository.findByUserBefore(user, after.dateTimeValue(), after.getId(), limit);
+        }
+
+        boolean hasNext = orders.size() > size;
+        if (hasNext) {
+            orders = orders.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            Order last = orders.get(orders.size() - 1);
+            nextCursor = new PageCursor("createdAt", true, last.getId(), last.getCreatedAt().toString()).encode();
+        }
+        return SliceResponse.<OrderDto>builder()
+                .content(orders.stream().map(OrderDto::fromEntity).collect(Collectors.toList()))
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     @Transactional(readOnly = true)
     public OrderDto getOrderById(User user, Long orderId) {
         Order order = orderRepository.findByIdAndUserWithItems(orderId, user)
@@ -0,0 +1,278 @@
+package com.jaee.service;
+
+import com.jaee.dto.product.ProductChangesDto;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.Product;
+import com.jaee.entity.ProductChange;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.event.StockChangedEvent;
+import com.jaee.exception.BadRequestException;
+import com.jaee.repository.ProductChangeRepository;
+import com.jaee.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Product change log behind {@code /products/changes?since=}.
+ *
+ * Every product write, stock change and category rename appends one row per affected
+ * product to {@code product_changes} in the writer's own transaction, so the log and
+ * the catalog commit together. Writers do not coordinate: sequence numbers are handed
+ * out in insert order, not commit order. Each row also records the id of the
+ * transaction that wrote it, and readers return rows in {@code (txid, seq)} order and
+ * only those of transactions older than every transaction still running (the snapshot
+ * xmin). A row committed later therefore always sorts after any position already handed
+ * out. Other databases (H2 in tests) have no transaction ids; there every row has txid 0
+ * and the log is read in {@code seq} order.
+ *
+ * A sync token is the {@link Position} the client has read up to. Entries also record the
+ * instance that wrote them, so {@link com.jaee.catalog.CatalogChangeFeed} can pick out the
+ * writes of other instances.
+ */
+@Service
+@Slf4j
+public class ProductChangeService {
+
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String WATERMARK_SQL = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private static final String APPEND_SQL = "INSERT INTO product_changes (product_id, deleted, origin) VALUES (?, ?, ?)";
+
+    private static final String APPEND_CATEGORY_SQL = """
+            INSERT INTO product_changes (product_id, deleted, origin)
+            SELECT id, FALSE, ? FROM products WHERE category_id = ? ORDER BY id
+            """;
+
+    // Keeps only the newest row of each product, which is all any token needs
+    private static final String COMPACT_SQL = """
+            DELETE FROM product_changes c
+            WHERE EXISTS (SELECT 1 FROM product_changes n
+                          WHERE n.product_id = c.product_id
+                            AND (n.txid > c.txid OR (n.txid = c.txid AND n.seq > c.seq)))
+            """;
+
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+    private final String origin = UUID.randomUUID().toString();
+
+    public ProductChangeService(
+            ProductChangeRepository productChangeRepository,
+            ProductRepository productRepository,
+            DataSource dataSource,
+            DataSourceProperties dataSourceProperties
+    ) {
+        this.productChangeRepository = productChangeRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        String url = dataSourceProperties.determineUrl();
+        this.postgres = url != null && url.startsWith("jdbc:postgresql:");
+    }
+
+    /**
+     * Products changed after {@code since} (null for a full sync), oldest change first.
+     * Each product appears once with its current state; products deleted or deactivated
+     * since are returned as tombstones. Products are read from the database rather than
+     * the snapshot, which is only refreshed after commit and may lag the log.
+     */
+    @Transactional(readOnly = true)
+    public ProductChangesDto getChanges(String since, int limit) {
+        if (limit < 1) {
+            throw new BadRequestException("Limit must be positive");
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+        Position after = since != null && !since.isBlank() ? Position.decode(since) : Position.START;
+        Batch batch = read(after, limit);
+        List<ProductChange> rows = batch.rows();
+
+        // Later rows of the same product supersede earlier ones
+        Map<Long, Boolean> deletedById = new LinkedHashMap<>();
+        for (ProductChange row : rows) {
+            deletedById.remove(row.getProductId());
+            deletedById.put(row.getProductId(), row.getDeleted());
+        }
+        List<Long> candidates = deletedById.entrySet().stream()
+                .filter(entry -> !entry.getValue())
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<Long, Product> products = candidates.isEmpty() ? Map.of()
+                : productRepository.findAllWithDetailsByIdIn(candidates).stream()
+                        .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<ProductDto> upserts = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        deletedById.forEach((productId, isDeleted) -> {
+            Product product = isDeleted ? null : products.get(productId);
+            if (product != null && Boolean.TRUE.equals(product.getActive())) {
+                upserts.add(ProductDto.fromEntity(product));
+            } else {
+                deleted.add(productId);
+            }
+        });
+
+        return ProductChangesDto.builder()
+                .upserts(upserts)
+                .deleted(deleted)
+                .nextToken(batch.next().encode())
+                .hasMore(batch.hasMore())
+                .build();
+    }
+
+    /**
+     * Log entries after {@code after}, oldest first, at most {@code limit}. Only entries
+     * of transactions below the watermark are returned; when none of those are left, the
+     * returned position moves up to the watermark, since every later entry sorts above it.
+     */
+    @Transactional(readOnly = true)
+    public Batch read(Position after, int limit) {
+        Long watermark = watermark();
+        List<ProductChange> rows = productChangeRepository.findAfter(after.txid(), after.seq(),
+                watermark != null ? watermark : Long.MAX_VALUE, Limit.of(limit + 1));
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
+        Position next = rows.isEmpty() ? after : Position.of(rows.get(rows.size() - 1));
+        if (!hasMore && watermark != null) {
+            Position reached = new Position(watermark, 0);
+            if (reached.compareTo(next) > 0) {
+                next = reached;
+            }
+        }
+        return new Batch(rows, next, hasMore);
+    }
+
+    /**
+     * Position of the end of the log: a read from here returns only entries written from
+     * now on (and possibly a few already committed, which readers must tolerate).
+     */
+    @Transactional(readOnly = true)
+    public Position head() {
+        Long watermark = watermark();
+        if (watermark != null) {
+            return new Position(watermark, 0);
+        }
+        return productChangeRepository.findFirstByOrderByTxidDescSeqDesc()
+                .map(Position::of)
+                .orElse(Position.START);
+    }
+
+    /**
+     * Id of this instance, recorded as the origin of every entry it appends.
+     */
+    public String origin() {
+        return origin;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<Long> ids = new ArrayList<>();
+        List<Boolean> deleted = new ArrayList<>();
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            ids.add(change.getProductId());
+            deleted.add(change.isDelete());
+        }
+        append(ids, deleted);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        List<Long> ids = new ArrayList<>(event.getDeltas().keySet());
+        append(ids, ids.stream().map(id -> false).toList());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Products embed the category name; deleting a category is refused while it has products
+        if (!event.isRename()) {
+            return;
+        }
+        jdbcTemplate.update(APPEND_CATEGORY_SQL, origin, event.getCategoryId());
+    }
+
+    @Scheduled(cron = "${app.catalog.changes.compact-cron:0 30 3 * * *}")
+    public void compact() {
+        int removed = jdbcTemplate.update(COMPACT_SQL);
+        log.info("Compacted product change log: {} superseded entries removed", removed);
+    }
+
+    private void append(List<Long> ids, List<Boolean> deleted) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            rows.add(new Object[]{ids.get(i), deleted.get(i), origin});
+        }
+        jdbcTemplate.batchUpdate(APPEND_SQL, rows);
+    }
+
+    // Id of the oldest transaction still running; every one below it has ended. Null when
+    // the database has no transaction ids to go by.
+    private Long watermark() {
+        return postgres ? jdbcTemplate.queryForObject(WATERMARK_SQL, Long.class) : null;
+    }
+
+    /**
+     * A place in the log: every entry at or below {@code (txid, seq)} has been read.
+     */
+    public record Position(long txid, long seq) implements Comparable<Position> {
+
+        public static final Position START = new Position(0, 0);
+
+        static Position of(ProductChange change) {
+            return new Position(change.getTxid(), change.getSeq());
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            int result = Long.compare(txid, other.txid);
+            return result != 0 ? result : Long.compare(seq, other.seq);
+        }
+
+        public String encode() {
+            return Long.toString(txid, Character.MAX_RADIX) + "." + Long.toString(seq, Character.MAX_RADIX);
+        }
+
+        // Tokens issued before V25 are a bare seq; every entry they cover has txid 0
+        public static Position decode(String token) {
+            int dot = token.indexOf('.');
+            try {
+                long txid = dot < 0 ? 0 : Long.parseLong(token.substring(0, dot), Character.MAX_RADIX);
+                long seq = Long.parseLong(token.substring(dot + 1), Character.MAX_RADIX);
+                if (txid < 0 || seq < 0) {
+                    throw new NumberFormatException();
+                }
+                return new Position(txid, seq);
+            } catch (NumberFormatException e) {
+                throw new BadRequestException("Invalid sync token");
+            }
+        }
+    }
+
+    /**
+     * Entries read from the log, the position to continue from, and whether more entries
+     * below the watermark are waiting.
+     */
+    public record Batch(List<ProductChange> rows, Position next, boolean hasMore) {
+    }
+}
@@ -0,0 +1,394 @@
+package com.jaee.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.dto.product.ProductImportResultDto;
+import com.jaee.dto.product.ProductImportRow;
+import com.jaee.entity.Category;
+import com.jaee.entity.Product;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductRepository;
+import com.jaee.util.CsvRecordReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk create/update of products from a streamed CSV or NDJSON body. Rows are upserted
+ * by slug in chunks: each chunk resolves its slugs with one query, writes through JDBC
+ * batches in its own transaction and publishes one {@link ProductChangedEvent}.
+ * Rows are full replacements, like {@code PUT /admin/products/{id}}, except that images
+ * are kept when a row omits them.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format fromContentType(String contentType) {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return mediaType.isCompatibleWith(MediaType.valueOf("text/csv")) ? CSV : NDJSON;
+        }
+    }
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public ProductImportService(
+            ProductRepository productRepository,
+            CategoryRepository categoryRepository,
+            ApplicationEventPublisher eventPublisher,
+            ObjectMapper objectMapper,
+            Validator validator,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.catalog.import.chunk-size:500}") int chunkSize
+    ) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public ProductImportResultDto importProducts(InputStream input, Format format) throws IOException {
+        List<Category> categories = categoryRepository.findAll();
+        Map<Long, Category> categoriesById = categories.stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+        Map<String, Category> categoriesBySlug = categories.stream()
+                .collect(Collectors.toMap(Category::getSlug, Function.identity()));
+
+        Result result = new Result();
+        Map<String, Long> seenSlugs = new HashMap<>();
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowSource source = format == Format.CSV ? new CsvRows(reader) : new NdjsonRows(reader);
+
+        while (true) {
+            Row row;
+            try {
+                row = source.next();
+            } catch (IllegalArgumentException e) {
+                // Malformed input past this point; keep what was read so far
+                result.fail(source.line(), null, e.getMessage());
+                break;
+            }
+            if (row == null) {
+                break;
+            }
+            result.totalRows++;
+            if (row.error == null) {
+                resolve(row, categoriesById, categoriesBySlug, seenSlugs);
+            }
+            if (row.error != null) {
+                result.fail(row.line, row.slug, row.error);
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, result);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, result);
+        }
+
+        log.info("Product import finished: {} rows, {} created, {} updated, {} failed",
+                result.totalRows, result.created, result.updated, result.errors.size());
+        return ProductImportResultDto.builder()
+                .totalRows(result.totalRows)
+                .created(result.created)
+                .updated(result.updated)
+                .failed(result.errors.size())
+                .errors(result.errors)
+                .build();
+    }
+
+    /**
+     * Validates the row and resolves its slug and category; sets {@code row.error} on failure.
+     */
+    private void resolve(Row row, Map<Long, Category> categoriesById, Map<String, Category> categoriesBySlug,
+                         Map<String, Long> seenSlugs) {
+        ProductImportRow data = row.data;
+        Set<ConstraintViolation<ProductImportRow>> violations = validator.validate(data);
+        if (!violations.isEmpty()) {
+            row.error = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return;
+        }
+
+        row.slug = ProductService.toSlug(data.getSlug() != null && !data.getSlug().isBlank() ? data.getSlug().trim() : data.getName().trim());
+        if (row.slug.isEmpty()) {
+            row.error = "Slug must contain at least one letter or digit";
+            return;
+        }
+        Long firstLine = seenSlugs.putIfAbsent(row.slug, row.line);
+        if (firstLine != null) {
+            row.error = "Duplicate slug '" + row.slug + "' (already on line " + firstLine + ")";
+            return;
+        }
+
+        if (data.getCategoryId() != null) {
+            row.category = categoriesById.get(data.getCategoryId());
+        } else if (data.getCategorySlug() != null && !data.getCategorySlug().isBlank()) {
+            row.category = categoriesBySlug.get(data.getCategorySlug().trim());
+        }
+        if (row.category == null && (data.getCategoryId() != null
+                || (data.getCategorySlug() != null && !data.getCategorySlug().isBlank()))) {
+            row.error = "Category not found";
+        }
+    }
+
+    /**
+     * Imports the rows in one transaction. If the chunk fails, each row is retried on its
+     * own so the error is reported against the row that caused it.
+     */
+    private void importChunk(List<Row> rows, Result result) {
+        try {
+            int[] counts = transactionTemplate.execute(status -> upsert(rows));
+            result.created += counts[0];
+            result.updated += counts[1];
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                Row row = rows.get(0);
+                log.warn("Product import failed for line {}: {}", row.line, e.getMessage());
+                result.fail(row.line, row.slug, rootMessage(e));
+            } else {
+                for (Row row : rows) {
+                    importChunk(List.of(row), result);
+                }
+            }
+        }
+    }
+
+    private int[] upsert(List<Row> rows) {
+        Map<String, Product> existing = productRepository.findAllBySlugIn(rows.stream().map(row -> row.slug).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getSlug, Function.identity()));
+
+        List<Product> inserts = new ArrayList<>();
+        List<ProductDto> befores = new ArrayList<>(rows.size());
+        List<Product> products = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            Product product = existing.get(row.slug);
+            if (product != null) {
+                befores.add(ProductDto.fromEntity(product));
+            } else {
+                product = Product.builder().slug(row.slug).build();
+                inserts.add(product);
+                befores.add(null);
+            }
+            apply(product, row);
+            products.add(product);
+        }
+        productRepository.saveAll(inserts);
+        productRepository.flush();
+
+        List<ProductChangedEvent.Change> changes = new ArrayList<>(rows.size());
+        for (int i = 0; i < products.size(); i++) {
+            changes.add(new ProductChangedEvent.Change(befores.get(i), ProductDto.fromEntity(products.get(i))));
+        }
+        eventPublisher.publishEvent(new ProductChangedEvent(changes));
+        return new int[]{inserts.size(), rows.size() - inserts.size()};
+    }
+
+    private void apply(Product product, Row row) {
+        ProductImportRow data = row.data;
+        product.setName(data.getName().trim());
+        product.setDescription(data.getDescription());
+        product.setPrice(data.getPrice());
+        product.setCompareAtPrice(data.getCompareAtPrice());
+        product.setCurrency(data.getCurrency() != null ? data.getCurrency() : "INR");
+        product.setCategory(row.category);
+        if (data.getImages() != null) {
+            product.getImages().clear();
+            product.getImages().addAll(data.getImages());
+        }
+        product.setStockQty(data.getStockQty() != null ? data.getStockQty() : 0);
+        product.setActive(data.getActive() == null || data.getActive());
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getSimpleName();
+    }
+
+    private static final class Row {
+        final long line;
+        final ProductImportRow data;
+        String error;
+        String slug;
+        Category category;
+
+        Row(long line, ProductImportRow data, String error) {
+            this.line = line;
+            this.data = data;
+            this.error = error;
+        }
+    }
+
+    private static final class Result {
+        int totalRows;
+        int created;
+        int updated;
+        final List<ProductImportResultDto.RowError> errors = new ArrayList<>();
+
+        void fail(long line, String slug, String message) {
+            errors.add(ProductImportResultDto.RowError.builder()
+                    .line(line)
+                    .slug(slug)
+                    .message(message)
+                    .build());
+        }
+    }
+
+    private interface RowSource {
+        Row next() throws IOException;
+
+        long line();
+    }
+
+    /**
+     * One JSON object per line, with the same fields as {@link ProductImportRow}.
+     */
+    private final class NdjsonRows implements RowSource {
+        private final BufferedReader reader;
+        private long line;
+
+        NdjsonRows(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                if (text == null) {
+                    return null;
+                }
+                line++;
+            } while (text.isBlank());
+            try {
+                return new Row(line, objectMapper.readValue(text, ProductImportRow.class), null);
+            } catch (JsonProcessingException e) {
+                return new Row(line, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public long line() {
+            return line;
+        }
+    }
+
+    /**
+     * CSV with a header row naming the columns: name, slug, description, price,
+     * compareAtPrice, currency, categoryId, categorySlug, stockQty, active and images
+     * (image URLs separated by '|'). Unknown columns are ignored.
+     */
+    private static final class CsvRows implements RowSource {
+        private final CsvRecordReader reader;
+        private List<String> header;
+
+        CsvRows(BufferedReader reader) {
+            this.reader = new CsvRecordReader(reader);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (header == null) {
+                List<String> names = reader.next();
+                if (names == null) {
+                    return null;
+                }
+                header = names.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+            }
+            List<String> fields = reader.next();
+            if (fields == null) {
+                return null;
+            }
+            long line = reader.getRecordLine();
+            ProductImportRow row = new ProductImportRow();
+            for (int i = 0; i < header.size() && i < fields.size(); i++) {
+                String value = fields.get(i).trim();
+                if (value.isEmpty()) {
+                    continue;
+                }
+                try {
+                    set(row, header.get(i), value);
+                } catch (IllegalArgumentException e) {
+                    return new Row(line, row, "Invalid value for " + header.get(i) + ": " + value);
+                }
+            }
+            return new Row(line, row, null);
+        }
+
+        @Override
+        public long line() {
+            return reader.getRecordLine();
+        }
+
+        private static void set(ProductImportRow row, String column, String value) {
+            switch (column) {
+                case "name" -> row.setName(value);
+                case "slug" -> row.setSlug(value);
+                case "description" -> row.setDescription(value);
+                case "price" -> row.setPrice(new BigDecimal(value));
+                case "compareatprice" -> row.setCompareAtPrice(new BigDecimal(value));
+                case "currency" -> row.setCurrency(value);
+                case "categoryid" -> row.setCategoryId(Long.valueOf(value));
+                case "categoryslug" -> row.setCategorySlug(value);
+                case "stockqty" -> row.setStockQty(Integer.valueOf(value));
+                case "active" -> row.setActive(parseBoolean(value));
+                case "images" -> row.setImages(Arrays.stream(value.split("\\|"))
+                        .map(String::trim)
+                        .filter(url -> !url.isEmpty())
+                        .collect(Collectors.toCollection(ArrayList::new)));
+                default -> {
+                    // Unknown column
+                }
+            }
+        }
+
+        private static boolean parseBoolean(String value) {
+            return switch (value.toLowerCase(Locale.ROOT)) {
+                case "true", "yes", "1" -> true;
+                case "false", "no", "0" -> false;
+                default -> throw new IllegalArgumentException(value);
+            };
+        }
+    }
+}
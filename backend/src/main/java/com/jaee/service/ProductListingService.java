@@ -0,0 +1,143 @@
+package com.jaee.service;
+
+import com.jaee.dto.product.ProductDto;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.event.StockChangedEvent;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the {@code product_listing} read model from catalog write events.
+ *
+ * Updates run in the writer's own transaction, so the read model commits (or rolls back)
+ * together with the catalog. Product events carry the full state after the write and
+ * stock events carry deltas, so nothing is read back from {@code products} here.
+ *
+ * The table spares listing reads the joins to categories and images; it is not an
+ * index-only read. A page is read from the table rows (description and images included),
+ * its total is a separate COUNT, and a page served from the query cache reads its rows
+ * back by id. Listing reads only reach it while the catalog snapshot is off or still
+ * loading, but it is kept up to date regardless, so an instance can turn the snapshot off
+ * without rebuilding the table.
+ */
+@Service
+public class ProductListingService {
+
+    // Standard MERGE rather than ON CONFLICT, so the statement also runs on H2 in tests
+    private static final String UPSERT_SQL = """
+            MERGE INTO product_listing l
+            USING (SELECT CAST(? AS BIGINT) AS product_id, CAST(? AS VARCHAR(255)) AS name,
+                          CAST(? AS VARCHAR(255)) AS slug, CAST(? AS VARCHAR) AS description,
+                          CAST(? AS DECIMAL(10, 2)) AS price, CAST(? AS DECIMAL(10, 2)) AS compare_at_price,
+                          CAST(? AS INTEGER) AS discount_percent, CAST(? AS VARCHAR(255)) AS currency,
+                          CAST(? AS BIGINT) AS category_id, CAST(? AS VARCHAR(255)) AS category_name,
+                          CAST(? AS VARCHAR ARRAY) AS images, CAST(? AS INTEGER) AS stock_qty,
+                          CAST(? AS BOOLEAN) AS in_stock, CAST(? AS TIMESTAMP) AS created_at) AS v
+            ON l.product_id = v.product_id
+            WHEN MATCHED THEN UPDATE SET
+                name = v.name,
+                slug = v.slug,
+                description = v.description,
+                price = v.price,
+                compare_at_price = v.compare_at_price,
+                discount_percent = v.discount_percent,
+                currency = v.currency,
+                category_id = v.category_id,
+                category_name = v.category_name,
+                images = v.images,
+                stock_qty = v.stock_qty,
+                in_stock = v.in_stock,
+                created_at = v.created_at
+            WHEN NOT MATCHED THEN INSERT (product_id, name, slug, description, price, compare_at_price, discount_percent,
+                                          currency, category_id, category_name, images, stock_qty, in_stock, created_at)
+                VALUES (v.product_id, v.name, v.slug, v.description, v.price, v.compare_at_price, v.discount_percent,
+                        v.currency, v.category_id, v.category_name, v.images, v.stock_qty, v.in_stock, v.created_at)
+            """;
+
+    private static final String DELETE_SQL = "DELETE FROM product_listing WHERE product_id = ?";
+
+    private static final String STOCK_SQL = """
+            UPDATE product_listing SET stock_qty = stock_qty + ?, in_stock = stock_qty + ? > 0
+            WHERE product_id = ?
+            """;
+
+    private static final String RENAME_CATEGORY_SQL = "UPDATE product_listing SET category_name = ? WHERE category_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductListingService(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Upserts active products and removes deleted or deactivated ones.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> removals = new ArrayList<>();
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            ProductDto product = change.getAfter();
+            if (product != null && Boolean.TRUE.equals(product.getActive())) {
+                upserts.add(toRow(product));
+            } else {
+                removals.add(new Object[]{change.getProductId()});
+            }
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+        }
+        if (!removals.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, removals);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<Long, Integer> delta : event.getDeltas().entrySet()) {
+            rows.add(new Object[]{delta.getValue(), delta.getValue(), delta.getKey()});
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(STOCK_SQL, rows);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        // Deleting a category is refused while it has products, so only renames matter
+        if (event.isRename()) {
+            jdbcTemplate.update(RENAME_CATEGORY_SQL, event.getAfter().getName(), event.getCategoryId());
+        }
+    }
+
+    private static Object[] toRow(ProductDto product) {
+        List<String> images = product.getImages();
+        int stockQty = product.getStockQty() != null ? product.getStockQty() : 0;
+        return new Object[]{
+                product.getId(),
+                product.getName(),
+                product.getSlug(),
+                product.getDescription(),
+                product.getPrice(),
+                product.getCompareAtPrice(),
+                product.getDiscountPercent(),
+                product.getCurrency(),
+                product.getCategoryId(),
+                product.getCategoryName(),
+                images != null ? images.toArray(new String[0]) : new String[0],
+                stockQty,
+                stockQty > 0,
+                product.getCreatedAt() != null ? Timestamp.valueOf(product.getCreatedAt()) : null
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.jaee.service;
+
+import com.jaee.catalog.CoPurchaseIndex;
+import com.jaee.dto.product.ProductDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * "Frequently bought together" for a product page: neighbours from the co-purchase
+ * index first, topped up with other products from the same category when purchase
+ * data is thin.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductRecommendationService {
+
+    private final ProductService productService;
+    private final CoPurchaseIndex coPurchaseIndex;
+
+    public List<ProductDto> getRelated(String slug, int limit) {
+        ProductDto product = productService.getProductBySlug(slug);
+        if (limit < 1) {
+            return List.of();
+        }
+
+        List<Long> neighbourIds = new ArrayList<>();
+        for (long id : coPurchaseIndex.neighbours(product.getId())) {
+            neighbourIds.add(id);
+        }
+        List<ProductDto> related = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        seen.add(product.getId());
+        // Neighbours may include products deleted or deactivated since they were bought
+        for (ProductDto neighbour : productService.getActiveProducts(neighbourIds)) {
+            if (related.size() < limit && seen.add(neighbour.getId())) {
+                related.add(neighbour);
+            }
+        }
+
+        if (related.size() < limit && product.getCategoryId() != null) {
+            List<ProductDto> sameCategory = productService.getProducts(
+                    product.getCategoryId(), null, null, null, "newest", "desc", 0, limit + seen.size()
+            ).getContent();
+            for (ProductDto candidate : sameCategory) {
+                if (related.size() < limit && seen.add(candidate.getId())) {
+                    related.add(candidate);
+                }
+            }
+        }
+        return related;
+    }
+}
@@ -1,27 +1,53 @@
 package com.jaee.service;
 
+import com.jaee.catalog.CatalogSnapshot;
+import com.jaee.catalog.LoadCoalescer;
+import com.jaee.catalog.ProductCollection;
+import com.jaee.catalog.ProductQueryCache;
+import com.jaee.catalog.ProductStatsTracker;
 import com.jaee.dto.common.PageResponse;
+import com.jaee.dto.common.SliceResponse;
+import com.jaee.dto.product.ProductBatchDto;
 import com.jaee.dto.product.ProductCreateRequest;
 import com.jaee.dto.product.ProductDto;
+import com.jaee.dto.product.ProductFacetsDto;
 import com.jaee.entity.Category;
 import com.jaee.entity.Product;
+import com.jaee.entity.ProductListing;
+import com.jaee.event.ProductChangedEvent;
 import com.jaee.exception.BadRequestException;
 import com.jaee.exception.NotFoundException;
 import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductListingRepository;
 import com.jaee.repository.ProductRepository;
+import com.jaee.repository.ProductSpecifications;
+import com.jaee.util.PageCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -31,10 +57,26 @@ import java.util.stream.Collectors;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final ProductListingRepository productListingRepository;
     private final CategoryRepository categoryRepository;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductStatsTracker productStatsTracker;
+    private final ProductQueryCache productQueryCache;
+    private final LoadCoalescer loadCoalescer;
+
+    @Value("${app.catalog.collections.new-arrivals-size:24}")
+    private int newArrivalsSize;
+
+    @Value("${app.catalog.batch.max-size:50}")
+    private int batchMaxSize;
+
+    @Value("${app.catalog.listing.read-model:true}")
+    private boolean listingReadModel;
     
     private static final Pattern NONLATIN = Pattern.compile("[^\\w-]");
     private static final Pattern WHITESPACE = Pattern.compile("[\\s]");
+    private static final Pattern SEARCH_TERM_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
 
     public PageResponse<ProductDto> getProducts(
             Long categoryId,
@@ -46,39 +88,313 @@ public class ProductService {
             int page,
             int size
     ) {
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDir), getSortField(sortBy));
+        String searchQuery = toSearchQuery(search);
+        if (searchQuery != null) {
+            String searchSort = "price".equals(sortBy) || "name".equals(sortBy) ? sortBy : "relevance";
+            String direction = sortDir.toLowerCase(Locale.ENGLISH);
+            ProductQueryCache.Key key = new ProductQueryCache.Key(searchQuery, categoryId, minPrice, maxPrice,
+                    searchSort, "desc".equals(direction), page, size);
+            return toPageResponse(productQueryCache.get(key, () -> productRepository.searchProductIds(
+                    searchQuery, categoryId, minPrice, maxPrice,
+                    searchSort, direction, PageRequest.of(page, size)
+            )));
+        }
+
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        boolean popular = "popularity".equals(getSortField(sortBy));
+        if (snapshot.isPresent()) {
+            if (popular) {
+                CatalogSnapshot.Ranking ranking = productStatsTracker.ranking(snapshot.get());
+                return snapshot.get().query(categoryId, minPrice, maxPrice, ranking, sortDir, page, size);
+            }
+            return snapshot.get().query(categoryId, minPrice, maxPrice, sortBy, sortDir, page, size);
+        }
+
+        if (popular) {
+            boolean descending = Sort.Direction.fromString(sortDir).isDescending();
+            return toPageResponse(productRepository.findIdsByPopularity(
+                    categoryId, minPrice, maxPrice, descending, PageRequest.of(page, size)
+            ));
+        }
+
+        Sort.Direction direction = Sort.Direction.fromString(sortDir);
+        ProductQueryCache.Key key = new ProductQueryCache.Key(null, categoryId, minPrice, maxPrice,
+                getSortField(sortBy), direction.isDescending(), page, size);
+        if (listingReadModel) {
+            // A miss already has the rows; a hit (or a caller that waited on another's miss)
+            // reads them back by id
+            Sort sort = Sort.by(direction, getSortField(sortBy)).and(Sort.by(direction, "productId"));
+            AtomicReference<Page<ProductListing>> loaded = new AtomicReference<>();
+            ProductQueryCache.IdPage idPage = productQueryCache.get(key, () -> {
+                Page<ProductListing> listingPage = productListingRepository.findWithFilters(
+                        categoryId, minPrice, maxPrice, PageRequest.of(page, size, sort));
+                loaded.set(listingPage);
+                return listingPage.map(ProductListing::getProductId);
+            });
+            return loaded.get() != null
+                    ? toPageResponseFromListing(loaded.get())
+                    : PageResponse.of(loadListingsInOrder(idPage.getIds()), idPage.getNumber(), idPage.getSize(),
+                            idPage.getTotalElements());
+        }
+
+        Sort sort = Sort.by(direction, getSortField(sortBy));
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Product> productPage = productRepository.findWithFilters(
-                categoryId, minPrice, maxPrice, search, pageable
-        );
+        return toPageResponse(productQueryCache.get(key, () -> productRepository.findIdsWithFilters(
+                categoryId, minPrice, maxPrice, pageable
+        )));
+    }
 
-        return PageResponse.from(productPage, ProductDto::fromEntity);
+    /**
+     * Category counts, price histogram and in-stock count for the same filters as
+     * {@link #getProducts}, answered from the snapshot's posting lists. Search text
+     * narrows the candidates to the full-text matches. Without the snapshot the counts
+     * come from one grouped query.
+     */
+    public ProductFacetsDto getFacets(Long categoryId, BigDecimal minPrice, BigDecimal maxPrice, String search) {
+        String searchQuery = toSearchQuery(search);
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        if (snapshot.isPresent()) {
+            List<Long> searchIds = searchQuery != null ? productRepository.findIdsMatchingSearch(searchQuery) : null;
+            return snapshot.get().facets(categoryId, minPrice, maxPrice, searchIds);
+        }
+        List<ProductRepository.FacetCount> counts = searchQuery != null
+                ? productRepository.countFacetsMatchingSearch(searchQuery, minPrice, maxPrice)
+                : productRepository.countFacets(minPrice, maxPrice);
+        return toFacets(counts, categoryId);
+    }
+
+    /**
+     * Cursor-paginated variant of {@link #getProducts} for infinite scroll. Each page
+     * seeks past the previous page's last (sort key, id) instead of using OFFSET, and
+     * no COUNT query is run.
+     */
+    public SliceResponse<ProductDto> scrollProducts(
+            Long categoryId,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String sortBy,
+            String sortDir,
+            String cursor,
+            int size
+    ) {
+        if (size < 1) {
+            throw new BadRequestException("Page size must be positive");
+        }
+        String sortField = getSortField(sortBy);
+        if ("popularity".equals(sortField)) {
+            throw new BadRequestException("Sorting by popularity is not supported with cursor pagination");
+        }
+        boolean descending = Sort.Direction.fromString(sortDir).isDescending();
+        PageCursor after = cursor != null ? PageCursor.decode(cursor, sortField, descending) : null;
+
+        List<ProductDto> content;
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        if (snapshot.isPresent()) {
+            content = snapshot.get().scroll(categoryId, minPrice, maxPrice, sortField, descending, after, size + 1);
+        } else {
+            Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+            Sort sort = Sort.by(direction, sortField).and(Sort.by(direction, "id"));
+            List<Long> ids = productRepository.findBy(
+                    ProductSpecifications.activeWithFilters(categoryId, minPrice, maxPrice, after),
+                    query -> query.sortBy(sort).limit(size + 1).all()
+            ).stream().map(Product::getId).collect(Collectors.toList());
+            content = loadInOrder(ids);
+        }
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            ProductDto last = content.get(content.size() - 1);
+            nextCursor = new PageCursor(sortField, descending, last.getId(), sortValue(last, sortField)).encode();
+        }
+        return SliceResponse.<ProductDto>builder()
+                .content(content)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     public ProductDto getProductBySlug(String slug) {
-        Product product = productRepository.findBySlug(slug)
-                .orElseThrow(() -> new NotFoundException("Product not found"));
-        return ProductDto.fromEntity(product);
+        Optional<ProductDto> cached = catalogSnapshotService.current().flatMap(snapshot -> snapshot.findBySlug(slug));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        // Inactive products and snapshot misses; concurrent requests for one slug share the query
+        return loadCoalescer.load("productBySlug", slug, () -> productRepository.findBySlug(slug)
+                .map(ProductDto::fromEntity)
+                .orElseThrow(() -> new NotFoundException("Product not found")));
     }
 
     public ProductDto getProductById(Long id) {
+        Optional<ProductDto> cached = catalogSnapshotService.current().flatMap(snapshot -> snapshot.findById(id));
+        if (cached.isPresent()) {
+            return cached.get();
+        }
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Product not found"));
         return ProductDto.fromEntity(product);
     }
 
     public List<ProductDto> getFeaturedProducts(int limit) {
-        return productRepository.findFeaturedProducts(PageRequest.of(0, limit))
-                .stream()
-                .map(ProductDto::fromEntity)
-                .collect(Collectors.toList());
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        if (snapshot.isPresent()) {
+            return snapshot.get().newest(limit);
+        }
+        if (listingReadModel) {
+            return productListingRepository.findNewest(PageRequest.of(0, limit)).stream()
+                    .map(ProductDto::fromListing)
+                    .collect(Collectors.toList());
+        }
+        return loadInOrder(productRepository.findFeaturedProductIds(PageRequest.of(0, limit)));
     }
 
     public PageResponse<ProductDto> getOnSaleProducts(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<Product> productPage = productRepository.findOnSaleProducts(pageable);
-        return PageResponse.from(productPage, ProductDto::fromEntity);
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        if (snapshot.isPresent()) {
+            return snapshot.get().onSale(page, size);
+        }
+        if (listingReadModel) {
+            Sort sort = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "productId"));
+            return toPageResponseFromListing(productListingRepository.findOnSale(PageRequest.of(page, size, sort)));
+        }
+        Pageable pageable = PageRequest.of(page, size,
+                Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+        Page<Long> idPage = productRepository.findOnSaleProductIds(pageable);
+        return toPageResponse(idPage);
+    }
+
+    /**
+     * Multi-get for cart, wishlist and recently-viewed hydration. Keys are answered from
+     * the snapshot where possible; the rest are loaded with at most one query per key
+     * type. Like the single lookups, inactive products are still found.
+     */
+    public ProductBatchDto getProductsBatch(List<Long> ids, List<String> slugs) {
+        List<Long> requestedIds = ids != null ? ids.stream().filter(Objects::nonNull).distinct().toList() : List.of();
+        List<String> requestedSlugs = slugs != null ? slugs.stream().filter(Objects::nonNull).distinct().toList() : List.of();
+        if (requestedIds.size() + requestedSlugs.size() > batchMaxSize) {
+            throw new BadRequestException("At most " + batchMaxSize + " products can be requested at once");
+        }
+
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        Map<Long, ProductDto> byId = new HashMap<>();
+        Map<String, ProductDto> bySlug = new HashMap<>();
+        snapshot.ifPresent(current -> {
+            requestedIds.forEach(id -> current.findById(id).ifPresent(product -> byId.put(id, product)));
+            requestedSlugs.forEach(slug -> current.findBySlug(slug).ifPresent(product -> bySlug.put(slug, product)));
+        });
+
+        List<Long> idMisses = requestedIds.stream().filter(id -> !byId.containsKey(id)).toList();
+        if (!idMisses.isEmpty()) {
+            productRepository.findAllWithDetailsByIdIn(idMisses)
+                    .forEach(product -> byId.put(product.getId(), ProductDto.fromEntity(product)));
+        }
+        List<String> slugMisses = requestedSlugs.stream().filter(slug -> !bySlug.containsKey(slug)).toList();
+        if (!slugMisses.isEmpty()) {
+            productRepository.findAllBySlugIn(slugMisses)
+                    .forEach(product -> bySlug.put(product.getSlug(), ProductDto.fromEntity(product)));
+        }
+
+        // A product requested both by id and by slug is returned once, at its first position
+        List<ProductDto> products = new ArrayList<>(requestedIds.size() + requestedSlugs.size());
+        Set<Long> returned = new HashSet<>();
+        List<Long> missingIds = new ArrayList<>();
+        List<String> missingSlugs = new ArrayList<>();
+        for (Long id : requestedIds) {
+            if (byId.containsKey(id)) {
+                products.add(byId.get(id));
+                returned.add(id);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        for (String slug : requestedSlugs) {
+            ProductDto product = bySlug.get(slug);
+            if (product != null) {
+                if (returned.add(product.getId())) {
+                    products.add(product);
+                }
+            } else {
+                missingSlugs.add(slug);
+            }
+        }
+        return ProductBatchDto.builder()
+                .products(products)
+                .missingIds(missingIds)
+                .missingSlugs(missingSlugs)
+                .build();
+    }
+
+    /**
+     * The active products among {@code ids}, in the given order; unknown or inactive ids
+     * are skipped.
+     */
+    public List<ProductDto> getActiveProducts(List<Long> ids) {
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        if (snapshot.isPresent()) {
+            return ids.stream()
+                    .map(id -> snapshot.get().findById(id))
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toList());
+        }
+        return loadInOrder(ids).stream()
+                .filter(product -> Boolean.TRUE.equals(product.getActive()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Cursor page of a home-page collection, newest first. Served from the snapshot's
+     * materialized collections when available.
+     */
+    public SliceResponse<ProductDto> getCollection(String name, String cursor, int size) {
+        if (size < 1) {
+            throw new BadRequestException("Page size must be positive");
+        }
+        ProductCollection collection = ProductCollection.fromSlug(name);
+        PageCursor after = cursor != null ? PageCursor.decode(cursor, "createdAt", true) : null;
+
+        List<ProductDto> content;
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        if (snapshot.isPresent()) {
+            content = snapshot.get().collection(collection, after, size + 1, newArrivalsSize);
+        } else if (collection == ProductCollection.NEW_ARRIVALS) {
+            // Seek on (createdAt, id) within the window, so a cursor whose product has since
+            // dropped out of it still resumes after that product instead of at the start
+            List<Long> ids = productRepository.findFeaturedProductIds(PageRequest.of(0, newArrivalsSize));
+            content = loadInOrder(ids).stream()
+                    .filter(product -> after == null || isNewestFirstAfter(product, after))
+                    .limit(size + 1)
+                    .collect(Collectors.toList());
+        } else {
+            Sort sort = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id"));
+            Specification<Product> spec = ProductSpecifications.activeWithFilters(null, null, null, after);
+            if (collection == ProductCollection.ON_SALE) {
+                spec = spec.and(ProductSpecifications.onSale());
+            }
+            List<Long> ids = productRepository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all())
+                    .stream().map(Product::getId).collect(Collectors.toList());
+            content = loadInOrder(ids);
+        }
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        String nextCursor = null;
+        if (hasNext) {
+            ProductDto last = content.get(content.size() - 1);
+            nextCursor = new PageCursor("createdAt", true, last.getId(), sortValue(last, "createdAt")).encode();
+        }
+        return SliceResponse.<ProductDto>builder()
+                .content(content)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
     }
 
     @Transactional
@@ -113,14 +429,17 @@ public class ProductService {
 
         productRepository.save(product);
         log.info("Product created: {}", product.getName());
-        
-        return ProductDto.fromEntity(product);
+
+        ProductDto created = ProductDto.fromEntity(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(null, created));
+        return created;
     }
 
     @Transactional
     public ProductDto updateProduct(Long id, ProductCreateRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Product not found"));
+        ProductDto before = ProductDto.fromEntity(product);
 
         String newSlug = toSlug(request.getName());
         if (!newSlug.equals(product.getSlug())) {
@@ -153,17 +472,21 @@ public class ProductService {
 
         productRepository.save(product);
         log.info("Product updated: {}", product.getName());
-        
-        return ProductDto.fromEntity(product);
+
+        ProductDto updated = ProductDto.fromEntity(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(before, updated));
+        return updated;
     }
 
     @Transactional
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Product not found"));
+        ProductDto before = ProductDto.fromEntity(product);
         
         productRepository.delete(product);
         log.info("Product deleted: {}", product.getName());
+        eventPublisher.publishEvent(ProductChangedEvent.of(before, null));
     }
 
     private String getSortField(String sortBy) {
@@ -171,11 +494,135 @@ public class ProductService {
             case "price" -> "price";
             case "name" -> "name";
             case "newest" -> "createdAt";
+            case "popular" -> "popularity"; // views and add-to-carts, see ProductStatsTracker
             default -> "createdAt";
         };
     }
 
-    private String toSlug(String input) {
+    /**
+     * Second phase of a listing query: hydrates a page of ids with category and images
+     * in one statement and maps them to DTOs in the page's order.
+     */
+    private List<ProductDto> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Product> byId = productRepository.findAllWithDetailsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(ProductDto::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Facets from per-(category, price bucket) counts, with the same rules as
+     * {@link CatalogSnapshot#facets}: each facet ignores its own filter.
+     */
+    private static ProductFacetsDto toFacets(List<ProductRepository.FacetCount> counts, Long categoryId) {
+        long total = 0;
+        long inStock = 0;
+        long[] bucketCounts = new long[CatalogSnapshot.PRICE_BUCKETS];
+        Map<Long, ProductFacetsDto.CategoryFacet> categories = new HashMap<>();
+        for (ProductRepository.FacetCount count : counts) {
+            if (categoryId == null || categoryId.equals(count.getCategoryId())) {
+                total += count.getInPriceRange();
+                inStock += count.getInStockInPriceRange();
+                bucketCounts[count.getPriceBucket()] += count.getProducts();
+            }
+            if (count.getCategoryId() != null) {
+                ProductFacetsDto.CategoryFacet facet = categories.computeIfAbsent(count.getCategoryId(),
+                        id -> ProductFacetsDto.CategoryFacet.builder().categoryId(id).categoryName(count.getCategoryName()).build());
+                facet.setCount(facet.getCount() + count.getInPriceRange());
+            }
+        }
+        List<ProductFacetsDto.CategoryFacet> categoryFacets = new ArrayList<>(categories.values());
+        categoryFacets.sort(Comparator.comparing(ProductFacetsDto.CategoryFacet::getCategoryName, String.CASE_INSENSITIVE_ORDER));
+        return ProductFacetsDto.builder()
+                .total(total)
+                .inStock(inStock)
+                .categories(categoryFacets)
+                .priceBuckets(CatalogSnapshot.priceBuckets(bucketCounts))
+                .build();
+    }
+
+    private PageResponse<ProductDto> toPageResponse(Page<Long> idPage) {
+        return PageResponse.of(
+                loadInOrder(idPage.getContent()),
+                idPage.getNumber(),
+                idPage.getSize(),
+                idPage.getTotalElements()
+        );
+    }
+
+    private List<ProductDto> loadListingsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, ProductListing> byId = productListingRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ProductListing::getProductId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(ProductDto::fromListing)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Pages read from the listing read model are complete as they are; no hydration query.
+     */
+    private PageResponse<ProductDto> toPageResponseFromListing(Page<ProductListing> listingPage) {
+        return PageResponse.of(
+                listingPage.getContent().stream().map(ProductDto::fromListing).collect(Collectors.toList()),
+                listingPage.getNumber(),
+                listingPage.getSize(),
+                listingPage.getTotalElements()
+        );
+    }
+
+    /**
+     * Page of cached ids, hydrated from the snapshot when there is one. The snapshot only
+     * holds active products, as the cached queries do.
+     */
+    private PageResponse<ProductDto> toPageResponse(ProductQueryCache.IdPage idPage) {
+        Optional<CatalogSnapshot> snapshot = catalogSnapshotService.current();
+        List<ProductDto> content = snapshot.isPresent()
+                ? getActiveProducts(idPage.getIds())
+                : loadInOrder(idPage.getIds());
+        return PageResponse.of(content, idPage.getNumber(), idPage.getSize(), idPage.getTotalElements());
+    }
+
+    private static boolean isNewestFirstAfter(ProductDto product, PageCursor after) {
+        int byCreatedAt = product.getCreatedAt().compareTo(after.dateTimeValue());
+        return byCreatedAt < 0 || (byCreatedAt == 0 && product.getId() < after.getId());
+    }
+
+    private String sortValue(ProductDto product, String sortField) {
+        return switch (sortField) {
+            case "price" -> product.getPrice().toPlainString();
+            case "name" -> product.getName();
+            default -> product.getCreatedAt().toString();
+        };
+    }
+
+    /**
+     * Turns free text into a prefix tsquery ("lav cand" -> "lav:* & cand:*") so the
+     * search box matches while the shopper is still typing. Returns null when the
+     * input has no searchable terms.
+     */
+    private String toSearchQuery(String search) {
+        if (search == null || search.isBlank()) {
+            return null;
+        }
+        String query = SEARCH_TERM_SEPARATOR.splitAsStream(search.toLowerCase(Locale.ENGLISH))
+                .filter(term -> !term.isEmpty())
+                .map(term -> term + ":*")
+                .collect(Collectors.joining(" & "));
+        return query.isEmpty() ? null : query;
+    }
+
+    static String toSlug(String input) {
         String nowhitespace = WHITESPACE.matcher(input).replaceAll("-");
         String normalized = Normalizer.normalize(nowhitespace, Normalizer.Form.NFD);
         String slug = NONLATIN.matcher(normalized).replaceAll("");
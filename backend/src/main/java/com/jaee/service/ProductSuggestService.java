@@ -0,0 +1,193 @@
+package com.jaee.service;
+
+import com.jaee.catalog.ProductPopularity;
+import com.jaee.catalog.SuggestTrie;
+import com.jaee.dto.category.CategoryDto;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.dto.product.ProductSuggestionsDto;
+import com.jaee.dto.product.ProductSuggestionsDto.CategorySuggestion;
+import com.jaee.dto.product.ProductSuggestionsDto.ProductSuggestion;
+import com.jaee.entity.Category;
+import com.jaee.entity.Product;
+import com.jaee.event.CatalogSyncEvent;
+import com.jaee.event.CategoryChangedEvent;
+import com.jaee.event.OrderPaidEvent;
+import com.jaee.event.ProductChangedEvent;
+import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typeahead over product names/slugs and category names. Lookups only read the current
+ * tries; writes rebuild the touched paths and swap the tries in once the transaction has
+ * committed. Products are ranked by units sold. Writes made by other instances are read
+ * back from the database.
+ */
+@Service
+@Slf4j
+public class ProductSuggestService {
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductPopularity productPopularity;
+    private final int maxResults;
+
+    // Current entry per id, needed to remove or re-rank it; guarded by this
+    private final Map<Long, SuggestTrie.Entry<ProductSuggestion>> productEntries = new HashMap<>();
+    private final Map<Long, SuggestTrie.Entry<CategorySuggestion>> categoryEntries = new HashMap<>();
+
+    private volatile SuggestTrie<ProductSuggestion> products;
+    private volatile SuggestTrie<CategorySuggestion> categories;
+
+    public ProductSuggestService(
+            ProductRepository productRepository,
+            CategoryRepository categoryRepository,
+            ProductPopularity productPopularity,
+            @Value("${app.catalog.suggest.max-results:10}") int maxResults
+    ) {
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.productPopularity = productPopularity;
+        this.maxResults = maxResults;
+        this.products = SuggestTrie.empty(maxResults);
+        this.categories = SuggestTrie.empty(maxResults);
+    }
+
+    public ProductSuggestionsDto suggest(String query, int limit) {
+        int count = Math.min(Math.max(limit, 0), maxResults);
+        return ProductSuggestionsDto.builder()
+                .products(products.top(query, count))
+                .categories(categories.top(query, count))
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        productEntries.clear();
+        categoryEntries.clear();
+        SuggestTrie<ProductSuggestion> nextProducts = SuggestTrie.empty(maxResults);
+        for (Product product : productRepository.findAllActiveWithDetails()) {
+            SuggestTrie.Entry<ProductSuggestion> entry = productEntry(ProductDto.fromEntity(product));
+            productEntries.put(product.getId(), entry);
+            nextProducts = nextProducts.add(entry);
+        }
+        SuggestTrie<CategorySuggestion> nextCategories = SuggestTrie.empty(maxResults);
+        for (Category category : categoryRepository.findAll()) {
+            SuggestTrie.Entry<CategorySuggestion> entry = categoryEntry(category.getId(), category.getName(), category.getSlug());
+            categoryEntries.put(category.getId(), entry);
+            nextCategories = nextCategories.add(entry);
+        }
+        products = nextProducts;
+        categories = nextCategories;
+        log.info("Suggest index built with {} products and {} categories", productEntries.size(), categoryEntries.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        SuggestTrie<ProductSuggestion> next = products;
+        for (ProductChangedEvent.Change change : event.getChanges()) {
+            next = replace(next, change.getProductId(), change.getAfter());
+        }
+        products = next;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onCategoryChanged(CategoryChangedEvent event) {
+        SuggestTrie<CategorySuggestion> next = categories;
+        SuggestTrie.Entry<CategorySuggestion> previous = categoryEntries.remove(event.getCategoryId());
+        if (previous != null) {
+            next = next.remove(previous);
+        }
+        CategoryDto after = event.getAfter();
+        if (after != null) {
+            SuggestTrie.Entry<CategorySuggestion> entry = categoryEntry(after.getId(), after.getName(), after.getSlug());
+            categoryEntries.put(after.getId(), entry);
+            next = next.add(entry);
+        }
+        categories = next;
+    }
+
+    @EventListener
+    public synchronized void onCatalogSync(CatalogSyncEvent event) {
+        if (!event.getProductIds().isEmpty()) {
+            SuggestTrie<ProductSuggestion> next = products;
+            Set<Long> gone = new HashSet<>(event.getProductIds());
+            for (Product product : productRepository.findAllWithDetailsByIdIn(event.getProductIds())) {
+                gone.remove(product.getId());
+                next = replace(next, product.getId(), ProductDto.fromEntity(product));
+            }
+            for (Long productId : gone) {
+                next = replace(next, productId, null);
+            }
+            products = next;
+        }
+        if (event.isCategoriesChanged()) {
+            SuggestTrie<CategorySuggestion> next = SuggestTrie.empty(maxResults);
+            categoryEntries.clear();
+            for (Category category : categoryRepository.findAll()) {
+                SuggestTrie.Entry<CategorySuggestion> entry = categoryEntry(category.getId(), category.getName(), category.getSlug());
+                categoryEntries.put(category.getId(), entry);
+                next = next.add(entry);
+            }
+            categories = next;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onOrderPaid(OrderPaidEvent event) {
+        SuggestTrie<ProductSuggestion> next = products;
+        for (Long productId : event.getQuantities().keySet()) {
+            SuggestTrie.Entry<ProductSuggestion> previous = productEntries.get(productId);
+            if (previous != null) {
+                SuggestTrie.Entry<ProductSuggestion> entry = previous.withScore(productPopularity.unitsSold(productId));
+                productEntries.put(productId, entry);
+                next = next.remove(previous).add(entry);
+            }
+        }
+        products = next;
+    }
+
+    // Swaps the product's entry for one built from its new state (null when deleted)
+    private SuggestTrie<ProductSuggestion> replace(SuggestTrie<ProductSuggestion> trie, Long productId, ProductDto after) {
+        SuggestTrie.Entry<ProductSuggestion> previous = productEntries.remove(productId);
+        if (previous != null) {
+            trie = trie.remove(previous);
+        }
+        if (after != null && Boolean.TRUE.equals(after.getActive())) {
+            SuggestTrie.Entry<ProductSuggestion> entry = productEntry(after);
+            productEntries.put(productId, entry);
+            trie = trie.add(entry);
+        }
+        return trie;
+    }
+
+    private SuggestTrie.Entry<ProductSuggestion> productEntry(ProductDto product) {
+        ProductSuggestion suggestion = ProductSuggestion.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .slug(product.getSlug())
+                .imageUrl(product.getImages() != null && !product.getImages().isEmpty() ? product.getImages().get(0) : null)
+                .build();
+        return new SuggestTrie.Entry<>(product.getId(), suggestion, product.getName(),
+                productPopularity.unitsSold(product.getId()), product.getName(), product.getSlug());
+    }
+
+    private SuggestTrie.Entry<CategorySuggestion> categoryEntry(Long id, String name, String slug) {
+        CategorySuggestion suggestion = CategorySuggestion.builder()
+                .id(id)
+                .name(name)
+                .slug(slug)
+                .build();
+        return new SuggestTrie.Entry<>(id, suggestion, name, 0, name, slug);
+    }
+}
@@ -0,0 +1,311 @@
+package com.jaee.service;
+
+import com.jaee.entity.Product;
+import com.jaee.entity.StockReservation;
+import com.jaee.repository.StockReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Time-limited stock holds for pending checkout orders ({@code stock_reservations}).
+ *
+ * Holds are placed when the order is created, so the last units cannot be sold to
+ * several shoppers at once; they are removed when the order is paid (stock is decremented
+ * instead), when payment fails, or by the sweeper once they expire. Placing holds locks
+ * the product rows, so concurrent checkouts for one product are checked one at a time.
+ *
+ * Lines for products in flash-sale mode are claimed from {@link HotStockService} instead
+ * and recorded as claimed holds, which lock nothing; their units are already off stock, so
+ * paying only removes the hold and a failed or expired order gives the units back. An
+ * order paid after its claimed hold expired claims its units from the counter again
+ * ({@link #claimHot}), since the sweeper has handed them back for sale.
+ *
+ * Held units per product are mirrored in memory for cheap availability checks on the
+ * cart path. The mirror follows this instance's committed changes and is reloaded from
+ * the table on every sweep, which also picks up holds placed by other instances.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private static final String LOCK_SQL = "SELECT id FROM products WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+
+    private static final String RESERVE_SQL = """
+            INSERT INTO stock_reservations (order_id, product_id, qty, expires_at, created_at)
+            SELECT ?, p.id, ?, ?, ?
+            FROM products p
+            WHERE p.id = ?
+              AND p.stock_qty - COALESCE((SELECT SUM(r.qty) FROM stock_reservations r
+                                          WHERE r.product_id = p.id AND r.expires_at > ?
+                                            AND r.claimed = FALSE), 0) >= ?
+            """;
+
+    private static final String CLAIMED_SQL = """
+            INSERT INTO stock_reservations (order_id, product_id, qty, expires_at, created_at, claimed)
+            VALUES (?, ?, ?, ?, ?, TRUE)
+            """;
+
+    private final StockReservationRepository stockReservationRepository;
+    private final HotStockService hotStockService;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    private volatile Map<Long, AtomicInteger> held = new ConcurrentHashMap<>();
+
+    public StockReservationService(
+            StockReservationRepository stockReservationRepository,
+            HotStockService hotStockService,
+            DataSource dataSource,
+            @Value("${app.checkout.reservations.ttl:15m}") Duration ttl
+    ) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.hotStockService = hotStockService;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.ttl = ttl;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+        log.info("Loaded stock holds for {} products", held.size());
+    }
+
+    /**
+     * Units of the product that can still be sold: stock minus this instance's view of the
+     * unexpired holds. Advisory; {@link #reserve} is the authoritative check.
+     */
+    public int available(Product product) {
+        OptionalInt hot = hotStockService.remaining(product.getId());
+        if (hot.isPresent()) {
+            return hot.getAsInt();
+        }
+        int stock = product.getStockQty() != null ? product.getStockQty() : 0;
+        AtomicInteger units = held.get(product.getId());
+        return Math.max(0, stock - (units != null ? units.get() : 0));
+    }
+
+    /**
+     * Holds every line (product id to quantity) of a pending order in the caller's
+     * transaction. A line is only held when enough unheld stock is left, or for a hot
+     * product when its counter still has the units.
+     *
+     * @return ids of the products that could not be held; the caller should roll back
+     */
+    public List<Long> reserve(Long orderId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        List<Long> locked = new ArrayList<>(new TreeMap<>(quantities).keySet());
+        locked.removeIf(hotStockService::isHot);
+        if (!locked.isEmpty()) {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(LOCK_SQL);
+                statement.setArray(1, connection.createArrayOf("bigint", locked.toArray()));
+                return statement;
+            }, rs -> null);
+        }
+
+        // Split after locking: a product switched to hot mode while this waited for its
+        // row lock has its counter by now and is claimed from it
+        Map<Long, Integer> hot = new TreeMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (Long id : new TreeMap<>(quantities).keySet()) {
+            if (hotStockService.isHot(id)) {
+                hot.put(id, quantities.get(id));
+            } else {
+                ids.add(id);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createdAt = Timestamp.valueOf(now);
+        Timestamp expiresAt = Timestamp.valueOf(now.plus(ttl));
+        List<Long> failed = new ArrayList<>();
+        if (!hot.isEmpty()) {
+            List<Long> unclaimed = hotStockService.claim(hot);
+            if (unclaimed.isEmpty()) {
+                onRollback(() -> hotStockService.restore(hot));
+                List<Object[]> claimedRows = new ArrayList<>(hot.size());
+                hot.forEach((id, qty) -> claimedRows.add(new Object[]{orderId, id, qty, expiresAt, createdAt}));
+                jdbcTemplate.batchUpdate(CLAIMED_SQL, claimedRows);
+            } else {
+                failed.addAll(unclaimed);
+            }
+        }
+
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            int qty = quantities.get(id);
+            rows.add(new Object[]{orderId, qty, expiresAt, createdAt, id, createdAt, qty});
+        }
+        int[] inserted = rows.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(RESERVE_SQL, rows);
+
+        Map<Long, Integer> placed = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (inserted[i] == 0) {
+                failed.add(ids.get(i));
+            } else {
+                placed.put(ids.get(i), quantities.get(ids.get(i)));
+            }
+        }
+        afterCommit(() -> adjust(placed, 1));
+        return failed;
+    }
+
+    /**
+     * Removes the holds of a paid order, in the caller's transaction.
+     */
+    public Settlement settle(Long orderId) {
+        return remove(orderId, false);
+    }
+
+    /**
+     * Claims lines of a paid order from the counters of products in flash-sale mode, in
+     * the caller's transaction. Meant for lines that no longer had a hold: a claimed hold
+     * that expired before the payment arrived was given back to the counter by the
+     * sweeper, so decrementing the row instead would let the counter sell the units again.
+     * Claimed units go back if the transaction rolls back.
+     *
+     * @return the hot products among the lines, mapped to whether their units were claimed
+     */
+    public Map<Long, Boolean> claimHot(Map<Long, Integer> quantities) {
+        Map<Long, Boolean> result = new HashMap<>();
+        quantities.forEach((productId, qty) -> {
+            if (!hotStockService.isHot(productId)) {
+                return;
+            }
+            Map<Long, Integer> line = Map.of(productId, qty);
+            boolean claimed = hotStockService.claim(line).isEmpty();
+            if (claimed) {
+                onRollback(() -> hotStockService.restore(line));
+            }
+            result.put(productId, claimed);
+        });
+        return result;
+    }
+
+    /**
+     * Removes the holds of an order whose payment failed, in the caller's transaction.
+     * Claimed units go back to their counters once it commits.
+     */
+    public void release(Long orderId) {
+        remove(orderId, true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.checkout.reservations.sweep-interval-ms:60000}")
+    @Transactional
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Integer> claimed = new HashMap<>();
+        for (StockReservation reservation : stockReservationRepository.findExpiredClaimed(now)) {
+            claimed.merge(reservation.getProductId(), reservation.getQty(), Integer::sum);
+        }
+        int expired = stockReservationRepository.deleteExpired(now);
+        if (expired > 0) {
+            log.info("Released {} expired stock holds", expired);
+        }
+        afterCommit(() -> {
+            if (!claimed.isEmpty()) {
+                hotStockService.restore(claimed);
+            }
+            reload();
+        });
+    }
+
+    private Settlement remove(Long orderId, boolean giveBackClaimed) {
+        Map<Long, Integer> released = new HashMap<>();
+        Map<Long, Integer> claimed = new HashMap<>();
+        for (StockReservation reservation : stockReservationRepository.findByOrderId(orderId)) {
+            Map<Long, Integer> target = Boolean.TRUE.equals(reservation.getClaimed()) ? claimed : released;
+            target.merge(reservation.getProductId(), reservation.getQty(), Integer::sum);
+        }
+        if (released.isEmpty() && claimed.isEmpty()) {
+            return new Settlement(Set.of(), Set.of());
+        }
+        stockReservationRepository.deleteByOrderId(orderId);
+        afterCommit(() -> {
+            adjust(released, -1);
+            if (giveBackClaimed && !claimed.isEmpty()) {
+                hotStockService.restore(claimed);
+            }
+        });
+        return new Settlement(claimed.keySet(), released.keySet());
+    }
+
+    // Synchronized with adjust, so a commit's adjustment is never applied to the map being
+    // replaced and lost. One that lands after the reload read its row is counted twice
+    // until the next sweep, which only understates availability.
+    private synchronized void reload() {
+        Map<Long, AtomicInteger> loaded = new ConcurrentHashMap<>();
+        for (StockReservationRepository.ProductUnits row : stockReservationRepository.sumActiveByProduct(LocalDateTime.now())) {
+            loaded.put(row.getProductId(), new AtomicInteger(row.getUnits().intValue()));
+        }
+        held = loaded;
+    }
+
+    // Never below zero: a release of a hold the last reload already missed would otherwise
+    // show more stock than there is
+    private synchronized void adjust(Map<Long, Integer> units, int sign) {
+        Map<Long, AtomicInteger> current = held;
+        units.forEach((productId, qty) -> current.computeIfAbsent(productId, id -> new AtomicInteger())
+                .updateAndGet(value -> Math.max(0, value + sign * qty)));
+    }
+
+    /**
+     * Products whose holds a paid order had: {@code claimed} ones were taken from hot
+     * counters and are already off stock, so they must not be decremented again;
+     * {@code held} ones had an ordinary hold.
+     */
+    public record Settlement(Set<Long> claimed, Set<Long> held) {
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
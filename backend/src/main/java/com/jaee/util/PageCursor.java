@@ -0,0 +1,69 @@
+package com.jaee.util;
+
+import com.jaee.exception.BadRequestException;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset (seek) pagination.
+ * Encodes the sort the page was produced with plus the sort key and id of the last
+ * row, so the next page can start strictly after it without OFFSET or COUNT(*).
+ */
+@Getter
+public class PageCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final String sortField;
+    private final boolean descending;
+    private final long id;
+    private final String value;
+
+    public PageCursor(String sortField, boolean descending, long id, String value) {
+        this.sortField = sortField;
+        this.descending = descending;
+        this.id = id;
+        this.value = value;
+    }
+
+    public String encode() {
+        String raw = sortField + SEPARATOR + (descending ? "desc" : "asc") + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token and check it was issued for the same sort, since a cursor from
+     * one ordering is meaningless in another.
+     */
+    public static PageCursor decode(String token, String sortField, boolean descending) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            PageCursor cursor = new PageCursor(parts[0], "desc".equals(parts[1]), Long.parseLong(parts[2]), parts[3]);
+            if (!cursor.sortField.equals(sortField) || cursor.descending != descending) {
+                throw new BadRequestException("Cursor does not match the requested sort order");
+            }
+            switch (cursor.sortField) {
+                case "price" -> cursor.decimalValue();
+                case "createdAt" -> cursor.dateTimeValue();
+                default -> { }
+            }
+            return cursor;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public BigDecimal decimalValue() {
+        return new BigDecimal(value);
+    }
+
+    public LocalDateTime dateTimeValue() {
+        return LocalDateTime.parse(value);
+    }
+}
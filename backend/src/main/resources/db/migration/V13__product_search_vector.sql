@@ -0,0 +1,42 @@
+-- Full-text product search: weighted tsvector (name > description > category name) with a GIN index
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION products_search_vector(p_name TEXT, p_description TEXT, p_category_id BIGINT)
+RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector('english', COALESCE(p_name, '')), 'A')
+        || setweight(to_tsvector('english', COALESCE(p_description, '')), 'B')
+        || setweight(to_tsvector('english', COALESCE((SELECT c.name FROM categories c WHERE c.id = p_category_id), '')), 'C');
+$$ LANGUAGE sql STABLE;
+
+-- Keep the vector current on every product write
+CREATE OR REPLACE FUNCTION products_search_vector_refresh() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := products_search_vector(NEW.name, NEW.description, NEW.category_id);
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_search_vector
+    BEFORE INSERT OR UPDATE OF name, description, category_id ON products
+    FOR EACH ROW EXECUTE FUNCTION products_search_vector_refresh();
+
+-- A category rename changes the weight-C terms of every product in it
+CREATE OR REPLACE FUNCTION categories_search_vector_refresh() RETURNS trigger AS $$
+BEGIN
+    UPDATE products
+    SET search_vector = products_search_vector(name, description, category_id)
+    WHERE category_id = NEW.id;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_categories_search_vector
+    AFTER UPDATE OF name ON categories
+    FOR EACH ROW WHEN (OLD.name IS DISTINCT FROM NEW.name)
+    EXECUTE FUNCTION categories_search_vector_refresh();
+
+-- Backfill existing rows
+UPDATE products SET search_vector = products_search_vector(name, description, category_id);
+
+CREATE INDEX IF NOT EXISTS idx_product_search_vector ON products USING GIN (search_vector);
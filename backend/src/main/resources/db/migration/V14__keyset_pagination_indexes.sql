@@ -0,0 +1,11 @@
+-- Composite (sort key, id) indexes for cursor-based pagination of products and order history
+
+CREATE INDEX IF NOT EXISTS idx_product_active_price_id ON products(price, id) WHERE active = TRUE;
+CREATE INDEX IF NOT EXISTS idx_product_active_name_id ON products(name, id) WHERE active = TRUE;
+CREATE INDEX IF NOT EXISTS idx_product_active_created_id ON products(created_at, id) WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_product_category_price_id ON products(category_id, price, id) WHERE active = TRUE;
+CREATE INDEX IF NOT EXISTS idx_product_category_name_id ON products(category_id, name, id) WHERE active = TRUE;
+CREATE INDEX IF NOT EXISTS idx_product_category_created_id ON products(category_id, created_at, id) WHERE active = TRUE;
+
+CREATE INDEX IF NOT EXISTS idx_order_user_created_id ON orders(user_id, created_at DESC, id DESC);
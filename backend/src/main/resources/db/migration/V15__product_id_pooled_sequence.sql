@@ -0,0 +1,2 @@
+-- Product ids are allocated in blocks of 50 (Hibernate pooled optimizer) so inserts can be batched
+ALTER SEQUENCE products_id_seq INCREMENT BY 50;
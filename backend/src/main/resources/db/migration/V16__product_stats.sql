@@ -0,0 +1,8 @@
+-- View and add-to-cart counts per product, written in batches by ProductStatsTracker
+
+CREATE TABLE product_stats (
+    product_id BIGINT PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+    views BIGINT NOT NULL DEFAULT 0,
+    add_to_carts BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,15 @@
+-- Append-only log of product changes for delta sync (/products/changes?since=).
+-- seq is assigned under an advisory lock at commit time, so it increases in commit order.
+
+CREATE TABLE product_changes (
+    seq BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_product_changes_product_seq ON product_changes(product_id, seq);
+
+-- Seed one entry per existing product so that syncing from the start returns the whole catalog
+INSERT INTO product_changes (product_id, deleted)
+SELECT id, FALSE FROM products ORDER BY id;
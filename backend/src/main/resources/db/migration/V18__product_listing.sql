@@ -0,0 +1,41 @@
+-- Flattened read model for product listing, maintained by ProductListingService from product,
+-- category and stock write events. Holds active products only, with the discount and primary
+-- image precomputed, so a listing page is read from this one table without joins.
+
+CREATE TABLE product_listing (
+    product_id BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    slug VARCHAR(255) NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    compare_at_price DECIMAL(10, 2),
+    discount_percent INTEGER,
+    currency VARCHAR(255),
+    category_id BIGINT,
+    category_name VARCHAR(255),
+    image_url VARCHAR(255),
+    stock_qty INTEGER NOT NULL DEFAULT 0,
+    in_stock BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMP
+);
+
+-- (sort key, id) indexes, with and without the category filter
+CREATE INDEX idx_listing_price_id ON product_listing(price, product_id);
+CREATE INDEX idx_listing_name_id ON product_listing(name, product_id);
+CREATE INDEX idx_listing_created_id ON product_listing(created_at, product_id);
+CREATE INDEX idx_listing_category_price_id ON product_listing(category_id, price, product_id);
+CREATE INDEX idx_listing_category_name_id ON product_listing(category_id, name, product_id);
+CREATE INDEX idx_listing_category_created_id ON product_listing(category_id, created_at, product_id);
+CREATE INDEX idx_listing_on_sale_created_id ON product_listing(created_at, product_id) WHERE discount_percent IS NOT NULL;
+
+-- Backfill; the discount is rounded half-up like ProductDto
+INSERT INTO product_listing (product_id, name, slug, price, compare_at_price, discount_percent, currency,
+                             category_id, category_name, image_url, stock_qty, in_stock, created_at)
+SELECT p.id, p.name, p.slug, p.price, p.compare_at_price,
+       CASE WHEN p.compare_at_price > p.price
+            THEN ROUND((p.compare_at_price - p.price) * 100 / p.compare_at_price)::INTEGER END,
+       p.currency, p.category_id, c.name,
+       (SELECT i.image_url FROM product_images i WHERE i.product_id = p.id LIMIT 1),
+       COALESCE(p.stock_qty, 0), COALESCE(p.stock_qty, 0) > 0, p.created_at
+FROM products p
+LEFT JOIN categories c ON c.id = p.category_id
+WHERE p.active = TRUE;
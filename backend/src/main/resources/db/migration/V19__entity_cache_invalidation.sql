@@ -0,0 +1,34 @@
+-- Second-level cache invalidation across instances. Every change to a table backing a cached
+-- entity or collection sends '<table>:<id>' on the l2_cache_invalidation channel; each instance
+-- LISTENs and evicts the entry (EntityCacheInvalidator). NOTIFY is delivered only on commit, and
+-- triggers also cover writes made with plain SQL.
+
+CREATE OR REPLACE FUNCTION notify_l2_cache_invalidation() RETURNS trigger AS $$
+DECLARE
+    changed RECORD;
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+    PERFORM pg_notify('l2_cache_invalidation', TG_TABLE_NAME || ':' || (to_jsonb(changed) ->> TG_ARGV[0]));
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_products_l2_invalidation
+    AFTER UPDATE OR DELETE ON products
+    FOR EACH ROW EXECUTE FUNCTION notify_l2_cache_invalidation('id');
+
+CREATE TRIGGER trg_product_images_l2_invalidation
+    AFTER INSERT OR UPDATE OR DELETE ON product_images
+    FOR EACH ROW EXECUTE FUNCTION notify_l2_cache_invalidation('product_id');
+
+CREATE TRIGGER trg_categories_l2_invalidation
+    AFTER UPDATE OR DELETE ON categories
+    FOR EACH ROW EXECUTE FUNCTION notify_l2_cache_invalidation('id');
+
+CREATE TRIGGER trg_users_l2_invalidation
+    AFTER UPDATE OR DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION notify_l2_cache_invalidation('id');
@@ -0,0 +1,16 @@
+-- Time-limited stock holds placed when a checkout order is created. A product's available
+-- stock is stock_qty minus its unexpired holds; holds are removed when the order is paid
+-- (stock is decremented instead), when payment fails, or by the expiry sweeper.
+
+CREATE TABLE stock_reservations (
+    id BIGSERIAL PRIMARY KEY,
+    order_id BIGINT NOT NULL REFERENCES orders(id) ON DELETE CASCADE,
+    product_id BIGINT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+    qty INTEGER NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_stock_reservations_product_expires ON stock_reservations(product_id, expires_at) INCLUDE (qty);
+CREATE INDEX idx_stock_reservations_order ON stock_reservations(order_id);
+CREATE INDEX idx_stock_reservations_expires ON stock_reservations(expires_at);
@@ -0,0 +1,20 @@
+-- Flash-sale ("hot SKU") mode. Units for a hot product are claimed from in-memory counters
+-- instead of the products row; the claim is recorded as a hold with claimed = TRUE, whose
+-- units are already off stock (or about to be, once the reconciler flushes them). Claimed
+-- holds do not count against stock_qty again.
+
+ALTER TABLE stock_reservations ADD COLUMN claimed BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE hot_stock_products (
+    product_id BIGINT PRIMARY KEY REFERENCES products(id) ON DELETE CASCADE,
+    enabled_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Highest journal sequence number whose stock change has been applied, per journal file.
+-- Written in the same transaction as the change, so replaying a journal after a crash
+-- never applies a record twice.
+CREATE TABLE hot_stock_checkpoints (
+    journal_id VARCHAR(36) PRIMARY KEY,
+    seq BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,16 @@
+-- Idempotency-Key support for checkout. One row per (user, endpoint, key), identified by a
+-- SHA-256 of the three so the primary key stays fixed-width. The row is inserted when the
+-- first request starts (completed_at NULL) and filled in with its response when it ends;
+-- later requests with the same key get that response replayed.
+
+CREATE TABLE idempotency_keys (
+    key_hash BYTEA PRIMARY KEY,
+    request_hash BYTEA NOT NULL,
+    status_code SMALLINT,
+    content_type VARCHAR(100),
+    body BYTEA,
+    created_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX idx_idempotency_keys_created ON idempotency_keys(created_at);
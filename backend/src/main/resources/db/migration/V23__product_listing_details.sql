@@ -0,0 +1,17 @@
+-- The listing read model carries the description and every image, so listing pages look
+-- the same whether they are read from here or from products (the admin product editor
+-- fills its form from a listing page).
+ALTER TABLE product_listing ADD COLUMN description TEXT;
+ALTER TABLE product_listing ADD COLUMN images TEXT[] NOT NULL DEFAULT '{}';
+
+-- product_images has no position column. Hibernate rewrites a product's images in list
+-- order on every change and loads them back without ORDER BY, so physical order is the
+-- order ProductDto sees. V18's image_url backfill took an arbitrary row instead.
+UPDATE product_listing l
+SET description = p.description,
+    images = COALESCE((SELECT ARRAY_AGG(i.image_url ORDER BY i.ctid)
+                       FROM product_images i WHERE i.product_id = l.product_id), '{}')
+FROM products p
+WHERE p.id = l.product_id;
+
+ALTER TABLE product_listing DROP COLUMN image_url;
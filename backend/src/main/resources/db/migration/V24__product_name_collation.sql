@@ -0,0 +1,15 @@
+-- Sort product names by code point everywhere, so the database and the in-memory catalog
+-- snapshot (which compares names with String.compareTo) agree on name order and on
+-- where a name cursor falls, whatever the database's default collation is.
+-- Indexes on the columns are rebuilt with the new collation.
+
+-- The search vector trigger fires on UPDATE OF name, which blocks changing the column
+DROP TRIGGER trg_products_search_vector ON products;
+
+ALTER TABLE products ALTER COLUMN name TYPE VARCHAR(200) COLLATE "C";
+
+CREATE TRIGGER trg_products_search_vector
+    BEFORE INSERT OR UPDATE OF name, description, category_id ON products
+    FOR EACH ROW EXECUTE FUNCTION products_search_vector_refresh();
+
+ALTER TABLE product_listing ALTER COLUMN name TYPE VARCHAR(255) COLLATE "C";
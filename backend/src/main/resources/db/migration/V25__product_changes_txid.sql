@@ -0,0 +1,11 @@
+-- Order the product change log by writing transaction instead of serializing every writer
+-- on an advisory lock. Each entry records the id of the transaction that wrote it; readers
+-- only return entries of transactions older than every transaction still running
+-- (pg_snapshot_xmin), and order them by (txid, seq), so an entry can never commit behind
+-- a position a client has already been given.
+
+-- Existing entries are all committed, so txid 0 keeps them ahead of anything new
+ALTER TABLE product_changes ADD COLUMN txid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE product_changes ALTER COLUMN txid SET DEFAULT (pg_current_xact_id()::text::bigint);
+
+CREATE INDEX idx_product_changes_txid_seq ON product_changes(txid, seq);
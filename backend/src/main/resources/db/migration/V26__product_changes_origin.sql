@@ -0,0 +1,5 @@
+-- Instance that wrote each change log entry. Every instance polls the log for entries written
+-- by the others (CatalogChangeFeed) to keep its in-memory catalog caches current; entries from
+-- before this migration have no origin and are treated as written elsewhere.
+
+ALTER TABLE product_changes ADD COLUMN origin VARCHAR(36);
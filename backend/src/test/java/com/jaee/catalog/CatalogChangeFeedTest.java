@@ -0,0 +1,133 @@
+package com.jaee.catalog;
+
+import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.Product;
+import com.jaee.event.StockChangedEvent;
+import com.jaee.repository.ProductChangeRepository;
+import com.jaee.repository.ProductRepository;
+import com.jaee.service.CatalogSnapshotService;
+import com.jaee.service.ProductChangeService;
+import com.jaee.service.ProductSuggestService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes made by another instance reach this instance's catalog caches through the change
+ * log. They are simulated by writing the database directly, with no local events.
+ */
+@SpringBootTest(properties = "app.single-node=false")
+@ActiveProfiles("test")
+class CatalogChangeFeedTest {
+
+    private static final String APPEND_SQL = "INSERT INTO product_changes (product_id, deleted, origin) VALUES (?, ?, ?)";
+
+    @Autowired
+    private CatalogChangeFeed catalogChangeFeed;
+
+    @Autowired
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
+    @Autowired
+    private ProductSuggestService productSuggestService;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductChangeRepository productChangeRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        catalogChangeFeed.start();
+        catalogSnapshotService.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productChangeRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void productsWrittenElsewhereReachTheSnapshotAndSuggestions() {
+        Product lamp = productRepository.save(product("Brass Lamp", "brass-lamp", 5));
+        jdbcTemplate.update(APPEND_SQL, lamp.getId(), false, "other-instance");
+        long version = catalogVersion.current().version();
+
+        catalogChangeFeed.poll();
+
+        assertThat(catalogSnapshotService.current().orElseThrow().findById(lamp.getId()))
+                .get().extracting(ProductDto::getName).isEqualTo("Brass Lamp");
+        assertThat(productSuggestService.suggest("brass", 10).getProducts()).hasSize(1);
+        assertThat(catalogVersion.current().version()).isGreaterThan(version);
+
+        productRepository.deleteById(lamp.getId());
+        jdbcTemplate.update(APPEND_SQL, lamp.getId(), true, "other-instance");
+
+        catalogChangeFeed.poll();
+
+        assertThat(catalogSnapshotService.current().orElseThrow().findById(lamp.getId())).isEmpty();
+        assertThat(productSuggestService.suggest("brass", 10).getProducts()).isEmpty();
+    }
+
+    @Test
+    void entriesWrittenByThisInstanceAreSkipped() {
+        Product lamp = productRepository.save(product("Brass Lamp", "brass-lamp", 5));
+        jdbcTemplate.update(APPEND_SQL, lamp.getId(), false, productChangeService.origin());
+        long version = catalogVersion.current().version();
+
+        catalogChangeFeed.poll();
+
+        assertThat(catalogVersion.current().version()).isEqualTo(version);
+        assertThat(catalogSnapshotService.current().orElseThrow().findById(lamp.getId())).isEmpty();
+    }
+
+    @Test
+    void stockEventAlreadyIncludedInTheSnapshotIsNotAppliedTwice() {
+        Product lamp = productRepository.save(product("Brass Lamp", "brass-lamp", 5));
+        // The decrement commits, then the snapshot loads, then the event arrives
+        jdbcTemplate.update("UPDATE products SET stock_qty = 4 WHERE id = ?", lamp.getId());
+        catalogSnapshotService.load();
+
+        eventPublisher.publishEvent(new StockChangedEvent(Map.of(lamp.getId(), -1)));
+
+        assertThat(catalogSnapshotService.current().orElseThrow().findById(lamp.getId()))
+                .get().extracting(ProductDto::getStockQty).isEqualTo(4);
+    }
+
+    private static Product product(String name, String slug, int stock) {
+        return Product.builder()
+                .name(name)
+                .slug(slug)
+                .price(new BigDecimal("500.00"))
+                .stockQty(stock)
+                .build();
+    }
+}
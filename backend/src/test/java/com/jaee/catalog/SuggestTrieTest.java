@@ -0,0 +1,65 @@
+package com.jaee.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestTrieTest {
+
+    private static final SuggestTrie.Entry<String> LAVENDER =
+            new SuggestTrie.Entry<>(1, "lavender", "Lavender Dream Candle", 5, "Lavender Dream Candle", "lavender-dream-candle");
+    private static final SuggestTrie.Entry<String> LAMP =
+            new SuggestTrie.Entry<>(2, "lamp", "Brass Lamp", 9, "Brass Lamp", "brass-lamp");
+    private static final SuggestTrie.Entry<String> LANTERN =
+            new SuggestTrie.Entry<>(3, "lantern", "Clay Lantern", 9, "Clay Lantern", "clay-lantern");
+
+    @Test
+    void findsEntriesByPrefixOfAnyWord() {
+        SuggestTrie<String> trie = SuggestTrie.<String>empty(10).add(LAVENDER).add(LAMP).add(LANTERN);
+
+        assertThat(trie.top("cand", 10)).containsExactly("lavender");
+        assertThat(trie.top("dream c", 10)).containsExactly("lavender");
+        assertThat(trie.top("brass-l", 10)).containsExactly("lamp");
+        assertThat(trie.top("xyz", 10)).isEmpty();
+        assertThat(trie.top("", 10)).isEmpty();
+    }
+
+    @Test
+    void ignoresCaseAndAccents() {
+        SuggestTrie<String> trie = SuggestTrie.<String>empty(10)
+                .add(new SuggestTrie.Entry<>(4, "creme", "Crème Brûlée Candle", 0, "Crème Brûlée Candle"));
+
+        assertThat(trie.top("CREME BRU", 10)).containsExactly("creme");
+    }
+
+    @Test
+    void ranksByScoreThenLabelAndKeepsTopK() {
+        SuggestTrie<String> trie = SuggestTrie.<String>empty(2).add(LAVENDER).add(LANTERN).add(LAMP);
+
+        // Lamp and Lantern tie on score, so the label decides
+        assertThat(trie.top("la", 10)).containsExactly("lamp", "lantern");
+        assertThat(trie.top("la", 1)).containsExactly("lamp");
+    }
+
+    @Test
+    void listsAnEntryOnceWhenSeveralTermsMatch() {
+        SuggestTrie<String> trie = SuggestTrie.<String>empty(10).add(LAMP);
+
+        // Reachable through both the name and the slug
+        assertThat(trie.top("brass", 10)).containsExactly("lamp");
+    }
+
+    @Test
+    void removeAndReRankRebuildTheChangedPaths() {
+        SuggestTrie<String> before = SuggestTrie.<String>empty(10).add(LAVENDER).add(LAMP).add(LANTERN);
+
+        SuggestTrie<String> withoutLamp = before.remove(LAMP);
+        SuggestTrie<String> reRanked = before.remove(LAVENDER).add(LAVENDER.withScore(20));
+
+        assertThat(withoutLamp.top("la", 10)).containsExactly("lantern", "lavender");
+        assertThat(withoutLamp.top("brass", 10)).isEmpty();
+        assertThat(reRanked.top("la", 10)).containsExactly("lavender", "lamp", "lantern");
+        // Published tries are never changed by later updates
+        assertThat(before.top("la", 10)).containsExactly("lamp", "lantern", "lavender");
+    }
+}
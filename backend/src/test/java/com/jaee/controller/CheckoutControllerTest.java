@@ -0,0 +1,109 @@
+package com.jaee.controller;
+
+import com.jaee.entity.Cart;
+import com.jaee.entity.CartItem;
+import com.jaee.entity.Order;
+import com.jaee.entity.Product;
+import com.jaee.entity.User;
+import com.jaee.repository.CartRepository;
+import com.jaee.repository.OrderRepository;
+import com.jaee.repository.ProductRepository;
+import com.jaee.repository.StockReservationRepository;
+import com.jaee.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * A checkout whose gateway call times out must not leave a pending order holding stock.
+ */
+@SpringBootTest(properties = {
+        "app.razorpay.test-mode=true",
+        "app.razorpay.local.latency=2s",
+        "app.razorpay.gateway.timeout=200ms",
+        "app.razorpay.gateway.max-attempts=1"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CheckoutControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(User.builder()
+                .name("Asha")
+                .email("asha@example.com")
+                .build());
+        Product product = productRepository.save(Product.builder()
+                .name("Brass Lamp")
+                .slug("brass-lamp")
+                .price(new BigDecimal("1200.00"))
+                .stockQty(5)
+                .build());
+        Cart cart = Cart.builder().user(user).build();
+        cart.getItems().add(CartItem.builder()
+                .cart(cart)
+                .product(product)
+                .qty(2)
+                .unitPriceSnapshot(product.getPrice())
+                .build());
+        cartRepository.save(cart);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockReservationRepository.deleteAll();
+        orderRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void gatewayTimeoutCancelsOrderAndReleasesHolds() throws Exception {
+        mockMvc.perform(post("/checkout/create-order")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isServiceUnavailable());
+
+        assertThat(orderRepository.findAll())
+                .singleElement()
+                .extracting(Order::getStatus)
+                .isEqualTo(Order.OrderStatus.CANCELLED);
+        assertThat(stockReservationRepository.count()).isZero();
+    }
+}
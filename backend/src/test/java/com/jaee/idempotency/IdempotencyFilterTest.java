@@ -0,0 +1,194 @@
+package com.jaee.idempotency;
+
+import com.jaee.entity.User;
+import com.jaee.exception.ServiceUnavailableException;
+import com.jaee.service.CheckoutService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class IdempotencyFilterTest {
+
+    // Not an entity, so the test schema does not have it
+    private static final String IDEMPOTENCY_KEYS_DDL = """
+            CREATE TABLE IF NOT EXISTS idempotency_keys (
+                key_hash VARBINARY(32) PRIMARY KEY,
+                request_hash VARBINARY(32) NOT NULL,
+                status_code SMALLINT,
+                content_type VARCHAR(100),
+                body VARBINARY,
+                created_at TIMESTAMP NOT NULL,
+                completed_at TIMESTAMP
+            )
+            """;
+
+    // Long enough for a concurrent repeat to reach the store while the first request runs
+    private static final long OVERLAP_MS = 500;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @MockBean
+    private CheckoutService checkoutService;
+
+    private JdbcTemplate jdbcTemplate;
+    private User alice;
+    private User bob;
+    private String key;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(IDEMPOTENCY_KEYS_DDL);
+        alice = User.builder().id(1L).email("alice@example.com").build();
+        bob = User.builder().id(2L).email("bob@example.com").build();
+        // Completed keys stay in the store's in-memory cache for the whole context
+        key = UUID.randomUUID().toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys");
+    }
+
+    @Test
+    void repeatGetsFirstResponseReplayed() throws Exception {
+        when(checkoutService.createOrder(any(), any())).thenReturn(Map.of("orderId", "order_1"));
+
+        MvcResult first = createOrder(alice, key, "{}");
+        MvcResult repeat = createOrder(alice, key, "{}");
+
+        assertThat(first.getResponse().getStatus()).isEqualTo(200);
+        assertThat(first.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(repeat.getResponse().getStatus()).isEqualTo(200);
+        assertThat(repeat.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(repeat.getResponse().getContentAsByteArray()).isEqualTo(first.getResponse().getContentAsByteArray());
+        verify(checkoutService, times(1)).createOrder(any(), any());
+    }
+
+    @Test
+    void keyReusedForDifferentBodyIsRejected() throws Exception {
+        when(checkoutService.createOrder(any(), any())).thenReturn(Map.of("orderId", "order_1"));
+
+        createOrder(alice, key, "{\"addressId\":1}");
+        MvcResult other = createOrder(alice, key, "{\"addressId\":2}");
+
+        assertThat(other.getResponse().getStatus()).isEqualTo(422);
+        verify(checkoutService, times(1)).createOrder(any(), any());
+    }
+
+    @Test
+    void keysAreScopedPerUser() throws Exception {
+        when(checkoutService.createOrder(any(), any())).thenReturn(Map.of("orderId", "order_1"));
+
+        MvcResult mine = createOrder(alice, key, "{}");
+        MvcResult theirs = createOrder(bob, key, "{}");
+
+        assertThat(mine.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(theirs.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        verify(checkoutService, times(2)).createOrder(any(), any());
+    }
+
+    @Test
+    void concurrentRepeatWaitsForFirstResponse() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(checkoutService.createOrder(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(OVERLAP_MS);
+            return Map.of("orderId", "order_1");
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<MvcResult> first = pool.submit(() -> createOrder(alice, key, "{}"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<MvcResult> repeat = pool.submit(() -> createOrder(alice, key, "{}"));
+
+            assertThat(first.get().getResponse().getStatus()).isEqualTo(200);
+            assertThat(repeat.get().getResponse().getStatus()).isEqualTo(200);
+            assertThat(repeat.get().getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(checkoutService, times(1)).createOrder(any(), any());
+    }
+
+    @Test
+    void concurrentRepeatOfFailedRequestIsToldToRetry() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(checkoutService.createOrder(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(OVERLAP_MS);
+            throw new ServiceUnavailableException("Payment service is unavailable, please try again");
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<MvcResult> first = pool.submit(() -> createOrder(alice, key, "{}"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<MvcResult> repeat = pool.submit(() -> createOrder(alice, key, "{}"));
+
+            assertThat(first.get().getResponse().getStatus()).isEqualTo(503);
+            assertThat(repeat.get().getResponse().getStatus()).isEqualTo(409);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedRequestCanBeRetriedWithSameKey() throws Exception {
+        when(checkoutService.createOrder(any(), any()))
+                .thenThrow(new ServiceUnavailableException("Payment service is unavailable, please try again"))
+                .thenReturn(Map.of("orderId", "order_1"));
+
+        MvcResult failed = createOrder(alice, key, "{}");
+        MvcResult retried = createOrder(alice, key, "{}");
+
+        assertThat(failed.getResponse().getStatus()).isEqualTo(503);
+        assertThat(retried.getResponse().getStatus()).isEqualTo(200);
+        assertThat(retried.getResponse().getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        verify(checkoutService, times(2)).createOrder(any(), any());
+    }
+
+    private MvcResult createOrder(User user, String idempotencyKey, String body) throws Exception {
+        return mockMvc.perform(post("/checkout/create-order")
+                        .with(authentication(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities())))
+                        .header(IdempotencyFilter.HEADER, idempotencyKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn();
+    }
+}
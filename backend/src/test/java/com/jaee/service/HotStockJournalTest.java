@@ -0,0 +1,71 @@
+package com.jaee.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotStockJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readReturnsAppendedEntries() throws Exception {
+        Path path = dir.resolve("hot-stock.journal");
+        String id;
+        try (HotStockJournal journal = HotStockJournal.create(path)) {
+            id = journal.id();
+            journal.append(Map.of(7L, -2));
+            journal.append(Map.of(9L, 5));
+            assertThat(journal.lastSeq()).isEqualTo(2);
+        }
+
+        HotStockJournal.Contents contents = HotStockJournal.read(path);
+
+        assertThat(contents.id()).isEqualTo(id);
+        assertThat(contents.entries()).containsExactly(
+                new HotStockJournal.Entry(1, 7L, -2),
+                new HotStockJournal.Entry(2, 9L, 5));
+    }
+
+    @Test
+    void readSkipsTornLastLine() throws Exception {
+        Path path = dir.resolve("hot-stock.journal");
+        try (HotStockJournal journal = HotStockJournal.create(path)) {
+            journal.append(Map.of(7L, -2));
+        }
+        // The process died halfway through writing the next line
+        Files.write(path, "2 7 -".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        HotStockJournal.Contents contents = HotStockJournal.read(path);
+
+        assertThat(contents.entries()).containsExactly(new HotStockJournal.Entry(1, 7L, -2));
+    }
+
+    @Test
+    void truncateKeepsSequenceNumbers() throws Exception {
+        Path path = dir.resolve("hot-stock.journal");
+        try (HotStockJournal journal = HotStockJournal.create(path)) {
+            journal.append(Map.of(7L, -2));
+            journal.append(Map.of(7L, -1));
+            journal.truncate();
+            journal.append(Map.of(7L, 4));
+        }
+
+        HotStockJournal.Contents contents = HotStockJournal.read(path);
+
+        assertThat(contents.entries()).containsExactly(new HotStockJournal.Entry(3, 7L, 4));
+    }
+
+    @Test
+    void readWithoutJournalReturnsNull() throws Exception {
+        assertThat(HotStockJournal.read(dir.resolve("missing.journal"))).isNull();
+    }
+}
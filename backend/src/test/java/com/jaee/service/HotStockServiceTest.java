@@ -0,0 +1,225 @@
+package com.jaee.service;
+
+import com.jaee.entity.Order;
+import com.jaee.entity.OrderItem;
+import com.jaee.entity.Product;
+import com.jaee.entity.User;
+import com.jaee.exception.BadRequestException;
+import com.jaee.repository.HotStockProductRepository;
+import com.jaee.repository.OrderRepository;
+import com.jaee.repository.ProductRepository;
+import com.jaee.repository.StockReservationRepository;
+import com.jaee.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class HotStockServiceTest {
+
+    // Not an entity, so the test schema does not have it
+    private static final String CHECKPOINTS_DDL = """
+            CREATE TABLE IF NOT EXISTS hot_stock_checkpoints (
+                journal_id VARCHAR(36) PRIMARY KEY,
+                seq BIGINT NOT NULL,
+                updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+            )
+            """;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private HotStockProductRepository hotStockProductRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path dir;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(CHECKPOINTS_DDL);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        product = productRepository.save(Product.builder()
+                .name("Festive Diya")
+                .slug("festive-diya")
+                .price(new BigDecimal("250.00"))
+                .stockQty(10)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        hotStockService.disable(product.getId());
+        stockReservationRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM hot_stock_checkpoints");
+    }
+
+    @Test
+    void replaySkipsEntriesUpToCheckpoint() throws Exception {
+        Path path = dir.resolve("hot-stock.journal");
+        String journalId;
+        try (HotStockJournal journal = HotStockJournal.create(path)) {
+            journalId = journal.id();
+            journal.append(Map.of(product.getId(), -1));
+            journal.append(Map.of(product.getId(), -2));
+            journal.append(Map.of(product.getId(), -3));
+        }
+        // The first two changes reached the database before the crash
+        jdbcTemplate.update("UPDATE products SET stock_qty = 7 WHERE id = ?", product.getId());
+        jdbcTemplate.update("INSERT INTO hot_stock_checkpoints (journal_id, seq) VALUES (?, ?)", journalId, 2);
+
+        HotStockService restarted = new HotStockService(hotStockProductRepository, productRepository,
+                stockReservationRepository, inventoryService, eventPublisher, dataSource, transactionManager,
+                2, path, true);
+        restarted.start();
+        restarted.stop();
+
+        assertThat(stockQty()).isEqualTo(4);
+        assertThat(jdbcTemplate.queryForObject("SELECT seq FROM hot_stock_checkpoints WHERE journal_id = ?",
+                Long.class, journalId)).isEqualTo(3);
+    }
+
+    @Test
+    void rolledBackClaimGoesBackToCounter() {
+        hotStockService.enable(product.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> failed = stockReservationService.reserve(1001L, Map.of(product.getId(), 4));
+            assertThat(failed).isEmpty();
+            assertThat(hotStockService.remaining(product.getId())).hasValue(6);
+            status.setRollbackOnly();
+        });
+
+        assertThat(hotStockService.remaining(product.getId())).hasValue(10);
+        assertThat(stockReservationRepository.count()).isZero();
+    }
+
+    @Test
+    void releasedClaimGoesBackToCounter() {
+        hotStockService.enable(product.getId());
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(stockReservationService.reserve(1002L, Map.of(product.getId(), 4))).isEmpty());
+        assertThat(hotStockService.remaining(product.getId())).hasValue(6);
+
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.release(1002L));
+
+        assertThat(hotStockService.remaining(product.getId())).hasValue(10);
+        hotStockService.flush();
+        assertThat(stockQty()).isEqualTo(10);
+    }
+
+    @Test
+    void claimBeyondCounterFails() {
+        hotStockService.enable(product.getId());
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(stockReservationService.reserve(1003L, Map.of(product.getId(), 11)))
+                        .containsExactly(product.getId()));
+
+        assertThat(hotStockService.remaining(product.getId())).hasValue(10);
+    }
+
+    @Test
+    void latePaymentAfterExpiredClaimTakesUnitsFromCounter() {
+        hotStockService.enable(product.getId());
+        User user = userRepository.save(User.builder().name("Asha").email("asha@example.com").build());
+        Order order = Order.builder()
+                .user(user)
+                .totalAmount(new BigDecimal("1000.00"))
+                .razorpayOrderId("order_late")
+                .build();
+        order.addItem(OrderItem.builder()
+                .product(product)
+                .nameSnapshot(product.getName())
+                .priceSnapshot(product.getPrice())
+                .qty(4)
+                .build());
+        Long orderId = orderRepository.save(order).getId();
+        transactionTemplate.executeWithoutResult(status ->
+                assertThat(stockReservationService.reserve(orderId, Map.of(product.getId(), 4))).isEmpty());
+
+        // The hold expires before the shopper pays and the sweeper gives its units back
+        jdbcTemplate.update("UPDATE stock_reservations SET expires_at = ? WHERE order_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)), orderId);
+        stockReservationService.sweep();
+        assertThat(hotStockService.remaining(product.getId())).hasValue(10);
+
+        checkoutService.verifyPayment("order_late", "pay_late", "signature");
+
+        assertThat(hotStockService.remaining(product.getId())).hasValue(6);
+        hotStockService.flush();
+        assertThat(stockQty()).isEqualTo(6);
+    }
+
+    @Test
+    void enableIsRefusedUnlessSingleNode() {
+        HotStockService multiNode = new HotStockService(hotStockProductRepository, productRepository,
+                stockReservationRepository, inventoryService, eventPublisher, dataSource, transactionManager,
+                2, dir.resolve("hot-stock.journal"), false);
+
+        assertThatThrownBy(() -> multiNode.enable(product.getId())).isInstanceOf(BadRequestException.class);
+        assertThat(hotStockProductRepository.existsById(product.getId())).isFalse();
+    }
+
+    private int stockQty() {
+        return jdbcTemplate.queryForObject("SELECT stock_qty FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}
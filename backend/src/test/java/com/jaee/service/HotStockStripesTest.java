@@ -0,0 +1,100 @@
+package com.jaee.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The striped counter behind a hot product must never hand out more units than it holds,
+ * however claims and stock edits interleave.
+ */
+class HotStockStripesTest {
+
+    @Test
+    void concurrentTakesNeverOversell() throws Exception {
+        HotStockService.Stripes stripes = new HotStockService.Stripes(4, 1000);
+        AtomicLong sold = new AtomicLong();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> claims = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                claims.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < 500; i++) {
+                        if (stripes.take(3)) {
+                            sold.addAndGet(3);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> claim : claims) {
+                claim.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(stripes.sum()).isNotNegative();
+        assertThat(sold.get() + stripes.sum()).isEqualTo(1000);
+
+        // Claims that lost a race for the last units may have failed; what is left is still sellable
+        while (stripes.take(3)) {
+            sold.addAndGet(3);
+        }
+        assertThat(stripes.sum()).isLessThan(3);
+        assertThat(sold.get() + stripes.sum()).isEqualTo(1000);
+    }
+
+    @Test
+    void takeSpansStripes() {
+        HotStockService.Stripes stripes = new HotStockService.Stripes(4, 8);
+
+        assertThat(stripes.take(8)).isTrue();
+        assertThat(stripes.sum()).isZero();
+    }
+
+    @Test
+    void shortTakeRefundsWhatItTook() {
+        HotStockService.Stripes stripes = new HotStockService.Stripes(4, 10);
+
+        assertThat(stripes.take(11)).isFalse();
+        assertThat(stripes.sum()).isEqualTo(10);
+        assertThat(stripes.take(10)).isTrue();
+        assertThat(stripes.sum()).isZero();
+    }
+
+    @Test
+    void negativeAddDrainsAllStripes() {
+        HotStockService.Stripes stripes = new HotStockService.Stripes(4, 8);
+
+        stripes.add(-6);
+
+        assertThat(stripes.sum()).isEqualTo(2);
+        assertThat(stripes.take(3)).isFalse();
+        assertThat(stripes.take(2)).isTrue();
+    }
+
+    @Test
+    void negativeAddStopsAtZero() {
+        HotStockService.Stripes stripes = new HotStockService.Stripes(4, 5);
+
+        stripes.add(-9);
+
+        assertThat(stripes.sum()).isZero();
+        assertThat(stripes.take(1)).isFalse();
+
+        stripes.add(3);
+        assertThat(stripes.take(3)).isTrue();
+    }
+}
@@ -0,0 +1,113 @@
+package com.jaee.service;
+
+import com.jaee.entity.Product;
+import com.jaee.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void insufficientLineIsReportedAndLeftUnchanged() {
+        Product lamp = save("Brass Lamp", 5);
+        Product diya = save("Festive Diya", 1);
+
+        List<Long> failed = inventoryService.decrement(Map.of(lamp.getId(), 2, diya.getId(), 3));
+
+        assertThat(failed).containsExactly(diya.getId());
+        assertThat(stockQty(lamp)).isEqualTo(3);
+        assertThat(stockQty(diya)).isEqualTo(1);
+    }
+
+    @Test
+    void unknownProductIsReported() {
+        assertThat(inventoryService.decrement(Map.of(-1L, 1))).containsExactly(-1L);
+    }
+
+    @Test
+    void twoOrdersForTheLastUnitCannotBothDecrement() throws Exception {
+        Product diya = save("Festive Diya", 1);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Boolean>> orders = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                orders.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        return transactionTemplate.execute(status ->
+                                inventoryService.decrement(Map.of(diya.getId(), 1)).isEmpty());
+                    } catch (RuntimeException e) {
+                        // Gave up waiting for the other order's row lock
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int decremented = 0;
+            for (Future<Boolean> order : orders) {
+                if (order.get(30, TimeUnit.SECONDS)) {
+                    decremented++;
+                }
+            }
+            assertThat(decremented).isEqualTo(1);
+            assertThat(stockQty(diya)).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Product save(String name, int stock) {
+        return productRepository.save(Product.builder()
+                .name(name)
+                .slug(name.toLowerCase().replace(' ', '-'))
+                .price(new BigDecimal("250.00"))
+                .stockQty(stock)
+                .build());
+    }
+
+    private int stockQty(Product product) {
+        return new JdbcTemplate(dataSource).queryForObject(
+                "SELECT stock_qty FROM products WHERE id = ?", Integer.class, product.getId());
+    }
+}
@@ -0,0 +1,127 @@
+package com.jaee.service;
+
+import com.jaee.dto.product.ProductChangesDto;
+import com.jaee.dto.product.ProductCreateRequest;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.ProductChange;
+import com.jaee.repository.ProductChangeRepository;
+import com.jaee.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductChangeServiceTest {
+
+    @Autowired
+    private ProductChangeService productChangeService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductChangeRepository productChangeRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        productChangeRepository.deleteAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productChangeRepository.deleteAll();
+        productRepository.deleteAll();
+        new JdbcTemplate(dataSource).update("DELETE FROM product_listing");
+    }
+
+    @Test
+    void tokenPagesThroughTheLog() {
+        ProductDto lamp = productService.createProduct(request("Brass Lamp", true));
+        ProductDto diya = productService.createProduct(request("Festive Diya", true));
+        ProductDto vase = productService.createProduct(request("Clay Vase", true));
+
+        ProductChangesDto first = productChangeService.getChanges(null, 2);
+        assertThat(first.getUpserts()).extracting(ProductDto::getId).containsExactly(lamp.getId(), diya.getId());
+        assertThat(first.isHasMore()).isTrue();
+
+        ProductChangesDto second = productChangeService.getChanges(first.getNextToken(), 2);
+        assertThat(second.getUpserts()).extracting(ProductDto::getId).containsExactly(vase.getId());
+        assertThat(second.isHasMore()).isFalse();
+
+        ProductChangesDto caughtUp = productChangeService.getChanges(second.getNextToken(), 2);
+        assertThat(caughtUp.getUpserts()).isEmpty();
+        assertThat(caughtUp.getDeleted()).isEmpty();
+        assertThat(caughtUp.getNextToken()).isEqualTo(second.getNextToken());
+    }
+
+    @Test
+    void productChangedTwiceAppearsOnceWithCurrentState() {
+        ProductDto lamp = productService.createProduct(request("Brass Lamp", true));
+        productService.updateProduct(lamp.getId(), request("Brass Table Lamp", true));
+
+        ProductChangesDto changes = productChangeService.getChanges(null, 10);
+
+        assertThat(changes.getUpserts()).singleElement()
+                .extracting(ProductDto::getName)
+                .isEqualTo("Brass Table Lamp");
+        assertThat(changes.getDeleted()).isEmpty();
+    }
+
+    @Test
+    void deletedAndDeactivatedProductsAreTombstones() {
+        ProductDto lamp = productService.createProduct(request("Brass Lamp", true));
+        ProductDto diya = productService.createProduct(request("Festive Diya", true));
+        String token = productChangeService.getChanges(null, 10).getNextToken();
+
+        productService.deleteProduct(lamp.getId());
+        productService.updateProduct(diya.getId(), request("Festive Diya", false));
+
+        ProductChangesDto changes = productChangeService.getChanges(token, 10);
+        assertThat(changes.getUpserts()).isEmpty();
+        assertThat(changes.getDeleted()).containsExactly(lamp.getId(), diya.getId());
+    }
+
+    @Test
+    void compactKeepsOnlyTheLatestEntryOfEachProduct() {
+        ProductDto lamp = productService.createProduct(request("Brass Lamp", true));
+        productService.updateProduct(lamp.getId(), request("Brass Table Lamp", true));
+        ProductDto diya = productService.createProduct(request("Festive Diya", true));
+        productService.updateProduct(lamp.getId(), request("Brass Desk Lamp", true));
+        long latest = productChangeRepository.findAll().stream().mapToLong(ProductChange::getSeq).max().orElseThrow();
+
+        productChangeService.compact();
+
+        List<ProductChange> left = productChangeRepository.findAll();
+        assertThat(left).extracting(ProductChange::getProductId).containsExactlyInAnyOrder(lamp.getId(), diya.getId());
+        assertThat(left).extracting(ProductChange::getSeq).contains(latest);
+        assertThat(productChangeService.getChanges(null, 10).getUpserts())
+                .extracting(ProductDto::getName)
+                .containsExactly("Festive Diya", "Brass Desk Lamp");
+    }
+
+    private static ProductCreateRequest request(String name, boolean active) {
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setName(name);
+        request.setPrice(new BigDecimal("500.00"));
+        request.setStockQty(5);
+        request.setActive(active);
+        return request;
+    }
+}
@@ -0,0 +1,131 @@
+package com.jaee.service;
+
+import com.jaee.catalog.CatalogSnapshot;
+import com.jaee.dto.category.CategoryCreateRequest;
+import com.jaee.dto.category.CategoryDto;
+import com.jaee.dto.product.ProductCreateRequest;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.dto.product.ProductFacetsDto;
+import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductChangeRepository;
+import com.jaee.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Facets without the catalog snapshot come from one grouped query and match what the
+ * snapshot's posting lists give for the same catalog.
+ */
+@SpringBootTest(properties = "app.catalog.snapshot.enabled=false")
+@ActiveProfiles("test")
+class ProductFacetsTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductChangeRepository productChangeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private CategoryDto candles;
+
+    @BeforeEach
+    void setUp() {
+        candles = categoryService.createCategory(category("Candles"));
+        CategoryDto lamps = categoryService.createCategory(category("Lamps"));
+        productService.createProduct(product("Soy Candle", "300.00", 5, candles));
+        productService.createProduct(product("Beeswax Candle", "800.00", 0, candles));
+        productService.createProduct(product("Brass Lamp", "2500.00", 2, lamps));
+        productService.createProduct(product("Clay Lamp", "450.00", 1, lamps));
+        productService.createProduct(product("Gift Card", "1000.00", 9, null));
+        ProductCreateRequest hidden = product("Old Candle", "300.00", 5, candles);
+        hidden.setActive(false);
+        productService.createProduct(hidden);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM product_listing");
+        productChangeRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void countsComeFromOneQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        ProductFacetsDto facets = productService.getFacets(candles.getId(), null, new BigDecimal("500.00"), null);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(facets.getTotal()).isEqualTo(1);
+        assertThat(facets.getInStock()).isEqualTo(1);
+        assertThat(facets.getCategories())
+                .extracting(ProductFacetsDto.CategoryFacet::getCategoryName, ProductFacetsDto.CategoryFacet::getCount)
+                .containsExactly(tuple("Candles", 1L),
+                        tuple("Lamps", 1L));
+        // The price facet ignores the price filter but keeps the category one
+        assertThat(facets.getPriceBuckets())
+                .extracting(ProductFacetsDto.PriceBucket::getCount)
+                .containsExactly(1L, 1L, 0L, 0L, 0L, 0L);
+    }
+
+    @Test
+    void countsMatchTheSnapshot() {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(0, productRepository.findAllActiveWithDetails().stream()
+                .map(ProductDto::fromEntity)
+                .toList());
+
+        assertThat(productService.getFacets(null, null, null, null))
+                .isEqualTo(snapshot.facets(null, null, null, null));
+        assertThat(productService.getFacets(candles.getId(), new BigDecimal("400.00"), null, null))
+                .isEqualTo(snapshot.facets(candles.getId(), new BigDecimal("400.00"), null, null));
+        assertThat(productService.getFacets(null, new BigDecimal("500.00"), new BigDecimal("2500.00"), null))
+                .isEqualTo(snapshot.facets(null, new BigDecimal("500.00"), new BigDecimal("2500.00"), null));
+    }
+
+    private static CategoryCreateRequest category(String name) {
+        CategoryCreateRequest request = new CategoryCreateRequest();
+        request.setName(name);
+        return request;
+    }
+
+    private static ProductCreateRequest product(String name, String price, int stock, CategoryDto category) {
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setName(name);
+        request.setPrice(new BigDecimal(price));
+        request.setStockQty(stock);
+        request.setCategoryId(category != null ? category.getId() : null);
+        request.setActive(true);
+        return request;
+    }
+}
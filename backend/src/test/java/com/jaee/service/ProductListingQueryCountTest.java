@@ -0,0 +1,116 @@
+package com.jaee.service;
+
+import com.jaee.dto.common.PageResponse;
+import com.jaee.dto.common.SliceResponse;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.Category;
+import com.jaee.entity.Product;
+import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listing pages must cost a constant number of statements regardless of page size:
+ * one id query (plus a count for paged responses) and one hydration query.
+ */
+@SpringBootTest(properties = {
+        "app.catalog.snapshot.enabled=false",
+        "app.catalog.listing.read-model=false"
+})
+@ActiveProfiles("test")
+class ProductListingQueryCountTest {
+
+    private static final int PAGE_SIZE = 12;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(Category.builder()
+                .name("Candles")
+                .slug("candles")
+                .build());
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            productRepository.save(Product.builder()
+                    .name("Candle " + i)
+                    .slug("candle-" + i)
+                    .price(new BigDecimal("500.00"))
+                    .compareAtPrice(new BigDecimal("650.00"))
+                    .category(category)
+                    .images(new ArrayList<>(List.of("candle-" + i + "-a.jpg", "candle-" + i + "-b.jpg")))
+                    .stockQty(10)
+                    .build());
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void productListingUsesConstantStatementCount() {
+        PageResponse<ProductDto> page = productService.getProducts(null, null, null, null, "price", "asc", 0, PAGE_SIZE);
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getContent()).allSatisfy(product -> {
+            assertThat(product.getCategoryName()).isEqualTo("Candles");
+            assertThat(product.getImages()).hasSize(2);
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void onSaleListingUsesConstantStatementCount() {
+        PageResponse<ProductDto> page = productService.getOnSaleProducts(0, PAGE_SIZE);
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void featuredListingUsesConstantStatementCount() {
+        List<ProductDto> products = productService.getFeaturedProducts(PAGE_SIZE);
+
+        assertThat(products).hasSize(PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void scrollUsesConstantStatementCount() {
+        SliceResponse<ProductDto> slice = productService.scrollProducts(null, null, null, "newest", "desc", null, PAGE_SIZE);
+
+        assertThat(slice.getContent()).hasSize(PAGE_SIZE);
+        assertThat(slice.isHasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
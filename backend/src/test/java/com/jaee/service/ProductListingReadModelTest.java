@@ -0,0 +1,140 @@
+package com.jaee.service;
+
+import com.jaee.dto.common.PageResponse;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.Category;
+import com.jaee.entity.Product;
+import com.jaee.entity.ProductListing;
+import com.jaee.repository.ProductListingRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Listing pages served from the {@code product_listing} read model are a single query
+ * (plus a count for paged responses) and have the same shape as pages built from products.
+ */
+@SpringBootTest(properties = {
+        "app.catalog.snapshot.enabled=false",
+        "app.catalog.listing.read-model=true",
+        "app.catalog.query-cache.enabled=false"
+})
+@ActiveProfiles("test")
+class ProductListingReadModelTest {
+
+    private static final int PAGE_SIZE = 12;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 2 * PAGE_SIZE; i++) {
+            productListingRepository.save(ProductListing.builder()
+                    .productId(1000L + i)
+                    .name("Candle " + i)
+                    .slug("candle-" + i)
+                    .description("Hand-poured soy candle " + i)
+                    .price(new BigDecimal("500.00"))
+                    .compareAtPrice(new BigDecimal("650.00"))
+                    .discountPercent(23)
+                    .currency("INR")
+                    .categoryId(1L)
+                    .categoryName("Candles")
+                    .images(new String[]{"candle-" + i + "-a.jpg", "candle-" + i + "-b.jpg"})
+                    .stockQty(10)
+                    .inStock(true)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM product_listing");
+    }
+
+    @Test
+    void listingPageIsOneQueryPlusCount() {
+        PageResponse<ProductDto> page = productService.getProducts(null, null, null, null, "price", "asc", 0, PAGE_SIZE);
+
+        assertThat(page.getContent()).hasSize(PAGE_SIZE);
+        assertThat(page.getTotalElements()).isEqualTo(2 * PAGE_SIZE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void listingPageKeepsDescriptionAndEveryImage() {
+        PageResponse<ProductDto> page = productService.getProducts(null, null, null, null, "price", "asc", 0, PAGE_SIZE);
+
+        assertThat(page.getContent()).allSatisfy(product -> {
+            assertThat(product.getDescription()).startsWith("Hand-poured soy candle");
+            assertThat(product.getImages()).hasSize(2);
+            assertThat(product.getCategoryName()).isEqualTo("Candles");
+        });
+    }
+
+    @Test
+    void listingViewMatchesEntityView() {
+        LocalDateTime createdAt = LocalDateTime.now();
+        Category category = Category.builder().id(1L).name("Candles").slug("candles").build();
+        Product product = Product.builder()
+                .id(7L)
+                .name("Lavender Candle")
+                .slug("lavender-candle")
+                .description("Hand-poured soy candle")
+                .price(new BigDecimal("500.00"))
+                .compareAtPrice(new BigDecimal("650.00"))
+                .category(category)
+                .images(new ArrayList<>(List.of("lavender-a.jpg", "lavender-b.jpg")))
+                .stockQty(10)
+                .createdAt(createdAt)
+                .build();
+        ProductListing listing = ProductListing.builder()
+                .productId(7L)
+                .name("Lavender Candle")
+                .slug("lavender-candle")
+                .description("Hand-poured soy candle")
+                .price(new BigDecimal("500.00"))
+                .compareAtPrice(new BigDecimal("650.00"))
+                .discountPercent(23)
+                .currency("INR")
+                .categoryId(1L)
+                .categoryName("Candles")
+                .images(new String[]{"lavender-a.jpg", "lavender-b.jpg"})
+                .stockQty(10)
+                .inStock(true)
+                .createdAt(createdAt)
+                .build();
+
+        assertThat(ProductDto.fromListing(listing)).isEqualTo(ProductDto.fromEntity(product));
+    }
+}
@@ -0,0 +1,139 @@
+package com.jaee.service;
+
+import com.jaee.dto.category.CategoryCreateRequest;
+import com.jaee.dto.category.CategoryDto;
+import com.jaee.dto.product.ProductCreateRequest;
+import com.jaee.dto.product.ProductDto;
+import com.jaee.entity.ProductListing;
+import com.jaee.event.StockChangedEvent;
+import com.jaee.repository.CategoryRepository;
+import com.jaee.repository.ProductChangeRepository;
+import com.jaee.repository.ProductListingRepository;
+import com.jaee.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The {@code product_listing} read model follows product, stock and category writes.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductListingServiceTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ProductListingRepository productListingRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductChangeRepository productChangeRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private CategoryDto candles;
+
+    @BeforeEach
+    void setUp() {
+        CategoryCreateRequest request = new CategoryCreateRequest();
+        request.setName("Candles");
+        candles = categoryService.createCategory(request);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM product_listing");
+        productChangeRepository.deleteAll();
+        productRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void createAndUpdateWriteTheFullRow() {
+        ProductDto lamp = productService.createProduct(request("Brass Lamp", true));
+
+        ProductListing created = productListingRepository.findById(lamp.getId()).orElseThrow();
+        assertThat(created.getName()).isEqualTo("Brass Lamp");
+        assertThat(created.getDescription()).isEqualTo("Hand-polished brass");
+        assertThat(created.getImages()).containsExactly("lamp-a.jpg", "lamp-b.jpg");
+        assertThat(created.getDiscountPercent()).isEqualTo(23);
+        assertThat(created.getCategoryName()).isEqualTo("Candles");
+        assertThat(created.getInStock()).isTrue();
+
+        ProductCreateRequest update = request("Brass Table Lamp", true);
+        update.setImages(List.of("lamp-c.jpg"));
+        update.setStockQty(0);
+        productService.updateProduct(lamp.getId(), update);
+
+        ProductListing updated = productListingRepository.findById(lamp.getId()).orElseThrow();
+        assertThat(updated.getName()).isEqualTo("Brass Table Lamp");
+        assertThat(updated.getImages()).containsExactly("lamp-c.jpg");
+        assertThat(updated.getStockQty()).isZero();
+        assertThat(updated.getInStock()).isFalse();
+    }
+
+    @Test
+    void deactivatedAndDeletedProductsLeaveTheListing() {
+        ProductDto lamp = productService.createProduct(request("Brass Lamp", true));
+        ProductDto diya = productService.createProduct(request("Festive Diya", true));
+
+        productService.updateProduct(lamp.getId(), request("Brass Lamp", false));
+        productService.deleteProduct(diya.getId());
+
+        assertThat(productListingRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    void stockChangesAndCategoryRenamesAreApplied() {
+        ProductDto lamp = productService.createProduct(request("Brass Lamp", true));
+
+        eventPublisher.publishEvent(new StockChangedEvent(Map.of(lamp.getId(), -5)));
+        CategoryCreateRequest rename = new CategoryCreateRequest();
+        rename.setName("Lighting");
+        categoryService.updateCategory(candles.getId(), rename);
+
+        ProductListing listing = productListingRepository.findById(lamp.getId()).orElseThrow();
+        assertThat(listing.getStockQty()).isZero();
+        assertThat(listing.getInStock()).isFalse();
+        assertThat(listing.getCategoryName()).isEqualTo("Lighting");
+    }
+
+    private ProductCreateRequest request(String name, boolean active) {
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setName(name);
+        request.setDescription("Hand-polished brass");
+        request.setPrice(new BigDecimal("500.00"));
+        request.setCompareAtPrice(new BigDecimal("650.00"));
+        request.setCategoryId(candles.getId());
+        request.setImages(List.of("lamp-a.jpg", "lamp-b.jpg"));
+        request.setStockQty(5);
+        request.setActive(active);
+        return request;
+    }
+}
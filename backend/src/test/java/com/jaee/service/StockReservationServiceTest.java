@@ -0,0 +1,131 @@
+package com.jaee.service;
+
+import com.jaee.entity.Product;
+import com.jaee.entity.StockReservation;
+import com.jaee.repository.ProductRepository;
+import com.jaee.repository.StockReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StockReservationServiceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        product = productRepository.save(Product.builder()
+                .name("Brass Lamp")
+                .slug("brass-lamp")
+                .price(new BigDecimal("1200.00"))
+                .stockQty(5)
+                .build());
+        stockReservationService.load();
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockReservationRepository.deleteAll();
+        productRepository.deleteAll();
+        stockReservationService.load();
+    }
+
+    @Test
+    void holdsCountAgainstStock() {
+        assertThat(reserve(1L, 3)).isEmpty();
+
+        assertThat(stockReservationService.available(product)).isEqualTo(2);
+        assertThat(reserve(2L, 3)).containsExactly(product.getId());
+        assertThat(reserve(3L, 2)).isEmpty();
+        assertThat(stockReservationService.available(product)).isZero();
+    }
+
+    @Test
+    void releaseFreesTheHold() {
+        reserve(1L, 3);
+
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.release(1L));
+
+        assertThat(stockReservationService.available(product)).isEqualTo(5);
+        assertThat(stockReservationRepository.count()).isZero();
+        assertThat(reserve(2L, 5)).isEmpty();
+    }
+
+    @Test
+    void settleRemovesTheHold() {
+        reserve(1L, 3);
+
+        StockReservationService.Settlement settlement = transactionTemplate.execute(status -> stockReservationService.settle(1L));
+
+        assertThat(settlement.claimed()).isEmpty();
+        assertThat(settlement.held()).containsExactly(product.getId());
+        assertThat(stockReservationRepository.count()).isZero();
+        assertThat(stockReservationService.available(product)).isEqualTo(5);
+    }
+
+    @Test
+    void expiredHoldsStopCountingAndAreSwept() {
+        stockReservationRepository.save(StockReservation.builder()
+                .orderId(1L)
+                .productId(product.getId())
+                .qty(4)
+                .expiresAt(LocalDateTime.now().minusMinutes(1))
+                .build());
+
+        assertThat(reserve(2L, 5)).isEmpty();
+
+        stockReservationService.sweep();
+
+        List<StockReservation> left = stockReservationRepository.findAll();
+        assertThat(left).extracting(StockReservation::getOrderId).containsExactly(2L);
+        assertThat(stockReservationService.available(product)).isZero();
+    }
+
+    @Test
+    void releaseOfUncountedHoldDoesNotInflateAvailability() {
+        // Placed by another instance after this one's last reload
+        stockReservationRepository.save(StockReservation.builder()
+                .orderId(1L)
+                .productId(product.getId())
+                .qty(3)
+                .expiresAt(LocalDateTime.now().plusMinutes(10))
+                .build());
+
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.release(1L));
+
+        assertThat(stockReservationService.available(product)).isEqualTo(5);
+    }
+
+    private List<Long> reserve(Long orderId, int qty) {
+        return transactionTemplate.execute(status ->
+                stockReservationService.reserve(orderId, Map.of(product.getId(), qty)));
+    }
+}